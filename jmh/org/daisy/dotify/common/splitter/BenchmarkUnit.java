@@ -0,0 +1,104 @@
+package org.daisy.dotify.common.splitter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Provides a split point unit for benchmarks.
+ * @author Joel Håkansson
+ */
+class BenchmarkUnit implements SplitPointUnit {
+	private final boolean breakable;
+	private final boolean skippable;
+	private final boolean collapsible;
+	private final float size;
+	private final List<String> supplementIds;
+
+	BenchmarkUnit(boolean breakable, boolean skippable, boolean collapsible, float size, List<String> supplementIds) {
+		this.breakable = breakable;
+		this.skippable = skippable;
+		this.collapsible = collapsible;
+		this.size = size;
+		this.supplementIds = supplementIds;
+	}
+
+	/**
+	 * Creates a list of units that resembles rows of text with some spacing
+	 * and footnotes. The same seed always gives the same units.
+	 * @param count the number of units
+	 * @param footnotes the number of footnotes per 100 units
+	 * @param seed the seed
+	 * @return returns a new list
+	 */
+	static List<BenchmarkUnit> createUnits(int count, int footnotes, long seed) {
+		Random rnd = new Random(seed);
+		List<BenchmarkUnit> ret = new ArrayList<>(count);
+		int note = 0;
+		for (int i=0; i<count; i++) {
+			if (rnd.nextInt(10)==0) {
+				// spacing between paragraphs
+				ret.add(new BenchmarkUnit(true, true, true, 1+rnd.nextInt(2), Collections.emptyList()));
+			} else {
+				List<String> ids = rnd.nextInt(100)<footnotes?Collections.singletonList("n"+(note++)):Collections.emptyList();
+				ret.add(new BenchmarkUnit(rnd.nextInt(3)!=0, false, false, 1, ids));
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Creates supplements for the units created by {@link #createUnits(int, int, long)}.
+	 * @return returns the supplements
+	 */
+	static Supplements<BenchmarkUnit> createSupplements() {
+		BenchmarkUnit note = new BenchmarkUnit(true, false, false, 2, Collections.emptyList());
+		return new Supplements<BenchmarkUnit>() {
+			@Override
+			public BenchmarkUnit get(String id) {
+				return note;
+			}
+			@Override
+			public double getOverhead() {
+				return 1;
+			}
+		};
+	}
+
+	@Override
+	public boolean isBreakable() {
+		return breakable;
+	}
+
+	@Override
+	public boolean isSkippable() {
+		return skippable;
+	}
+
+	@Override
+	public boolean isCollapsible() {
+		return collapsible;
+	}
+
+	@Override
+	public boolean collapsesWith(Object obj) {
+		return obj instanceof BenchmarkUnit && ((BenchmarkUnit)obj).collapsible;
+	}
+
+	@Override
+	public float getUnitSize() {
+		return size;
+	}
+
+	@Override
+	public float getLastUnitSize() {
+		return size;
+	}
+
+	@Override
+	public List<String> getSupplementaryIDs() {
+		return supplementIds;
+	}
+
+}
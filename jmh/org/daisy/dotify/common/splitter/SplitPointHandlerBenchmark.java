@@ -0,0 +1,92 @@
+package org.daisy.dotify.common.splitter;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks {@link SplitPointHandler} on synthetic units, from a single
+ * page to a book.
+ * @author Joel Håkansson
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class SplitPointHandlerBenchmark {
+	/**
+	 * The number of units.
+	 */
+	@Param({"30", "1000", "100000"})
+	public int units;
+	/**
+	 * The number of footnotes per 100 units.
+	 */
+	@Param({"0", "5"})
+	public int footnotes;
+	/**
+	 * The page height.
+	 */
+	@Param({"29"})
+	public float pageHeight;
+
+	private SplitPointHandler<BenchmarkUnit, SplitPointDataList<BenchmarkUnit>> handler;
+	private SplitPointDataList<BenchmarkUnit> data;
+
+	/**
+	 * Creates the data.
+	 */
+	@Setup
+	public void setup() {
+		List<BenchmarkUnit> list = BenchmarkUnit.createUnits(units, footnotes, 4711);
+		handler = new SplitPointHandler<>();
+		data = new SplitPointDataList<>(list, BenchmarkUnit.createSupplements());
+	}
+
+	/**
+	 * Finds the first split point.
+	 * @return returns the specification
+	 */
+	@Benchmark
+	public SplitPointSpecification find() {
+		return handler.find(pageHeight, data, StandardSplitOption.ALLOW_FORCE);
+	}
+
+	/**
+	 * Splits the first page.
+	 * @return returns the split point
+	 */
+	@Benchmark
+	public SplitPoint<BenchmarkUnit, SplitPointDataList<BenchmarkUnit>> split() {
+		return handler.split(pageHeight, data, StandardSplitOption.ALLOW_FORCE);
+	}
+
+	/**
+	 * Splits all units into pages.
+	 * @param bh the black hole
+	 */
+	@Benchmark
+	public void splitAllPages(Blackhole bh) {
+		SplitPointDataList<BenchmarkUnit> d = data;
+		while (!d.isEmpty()) {
+			SplitPoint<BenchmarkUnit, SplitPointDataList<BenchmarkUnit>> sp = handler.split(pageHeight, d, StandardSplitOption.ALLOW_FORCE);
+			bh.consume(sp.getHead());
+			d = sp.getTail();
+		}
+	}
+
+}
@@ -0,0 +1,35 @@
+package org.daisy.dotify.common.text;
+
+import java.util.Random;
+
+/**
+ * Provides synthetic text for benchmarks.
+ * @author Joel Håkansson
+ */
+class BenchmarkText {
+	private static final String[] WORDS = {
+			"the", "braille", "of", "a", "page", "volume", "and", "text", "dotify", "\u00FCbersetzung",
+			"to", "in", "sheet", "row", "hyphen\u00ADation", "\u00E9", "character", "with", "is", "formatter"
+	};
+
+	private BenchmarkText() { }
+
+	/**
+	 * Creates a text with words separated by spaces. The same seed always gives the same text.
+	 * @param length the approximate length of the text
+	 * @param seed the seed
+	 * @return returns a new text
+	 */
+	static String create(int length, long seed) {
+		Random rnd = new Random(seed);
+		StringBuilder sb = new StringBuilder(length+20);
+		while (sb.length()<length) {
+			if (sb.length()>0) {
+				sb.append(' ');
+			}
+			sb.append(WORDS[rnd.nextInt(WORDS.length)]);
+		}
+		return sb.toString();
+	}
+
+}
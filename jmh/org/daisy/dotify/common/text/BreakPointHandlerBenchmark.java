@@ -0,0 +1,95 @@
+package org.daisy.dotify.common.text;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks {@link BreakPointHandler#nextRow(int, boolean)} and
+ * {@link BreakPointOptimizer#find(BreakPointHandler, int, boolean)} on synthetic text,
+ * from a single paragraph to a book.
+ * @author Joel Håkansson
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class BreakPointHandlerBenchmark {
+	/**
+	 * The length of the text.
+	 */
+	@Param({"100", "10000", "1000000"})
+	public int length;
+	/**
+	 * The row width.
+	 */
+	@Param({"32"})
+	public int width;
+
+	private String text;
+
+	/**
+	 * Creates the text.
+	 */
+	@Setup
+	public void setup() {
+		text = BenchmarkText.create(length, 4711);
+	}
+
+	/**
+	 * Breaks the entire text into rows.
+	 * @param bh the black hole
+	 */
+	@Benchmark
+	public void nextRow(Blackhole bh) {
+		BreakPointHandler bph = new BreakPointHandler(text);
+		while (bph.hasNext()) {
+			bh.consume(bph.nextRow(width, false));
+		}
+	}
+
+	/**
+	 * Breaks the entire text into rows, allowing forced breaks.
+	 * @param bh the black hole
+	 */
+	@Benchmark
+	public void nextRowForce(Blackhole bh) {
+		BreakPointHandler bph = new BreakPointHandler(text);
+		while (bph.hasNext()) {
+			bh.consume(bph.nextRow(width, true));
+		}
+	}
+
+	/**
+	 * Breaks the entire text into rows at once.
+	 * @param bh the black hole
+	 */
+	@Benchmark
+	public void breakAll(Blackhole bh) {
+		bh.consume(new BreakPointHandler(text).breakAll(new int[]{width}, true));
+	}
+
+	/**
+	 * Breaks the entire text into rows with the default optimizer.
+	 * The time should grow linearly with the length of the text.
+	 * @param bh the black hole
+	 */
+	@Benchmark
+	public void optimize(Blackhole bh) {
+		bh.consume(new BreakPointOptimizer().find(new BreakPointHandler(text), width, true));
+	}
+
+}
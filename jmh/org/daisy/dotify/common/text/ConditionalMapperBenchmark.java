@@ -0,0 +1,83 @@
+package org.daisy.dotify.common.text;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks {@link ConditionalMapper#replace(String)} and
+ * {@link ConditionalMapper#replace(CharSequence, Appendable)} on synthetic text.
+ * @author Joel Håkansson
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ConditionalMapperBenchmark {
+	/**
+	 * The length of the text.
+	 */
+	@Param({"100", "10000", "1000000"})
+	public int length;
+
+	private String text;
+	private ConditionalMapper mapper;
+	private ConditionalMapper triggered;
+	private StringBuilder out;
+
+	/**
+	 * Creates the text and the mappers.
+	 */
+	@Setup
+	public void setup() {
+		text = BenchmarkText.create(length, 4711);
+		mapper = new ConditionalMapper.Builder().map("abcdefghij", "ABCDEFGHIJ").build();
+		// the space activates the mapping of the first letters of each word
+		triggered = ConditionalMapper.withTrigger(' ').map("abcdefghij", "ABCDEFGHIJ").build();
+		out = new StringBuilder(length);
+	}
+
+	/**
+	 * Replaces characters without a trigger.
+	 * @return returns the result
+	 */
+	@Benchmark
+	public String replace() {
+		return mapper.replace(text);
+	}
+
+	/**
+	 * Replaces characters with a trigger.
+	 * @return returns the result
+	 */
+	@Benchmark
+	public String replaceWithTrigger() {
+		return triggered.replace(text);
+	}
+
+	/**
+	 * Replaces characters without a trigger into a reused buffer.
+	 * @return returns the buffer
+	 * @throws IOException never
+	 */
+	@Benchmark
+	public StringBuilder replaceAppendable() throws IOException {
+		out.setLength(0);
+		mapper.replace(text, out);
+		return out;
+	}
+
+}
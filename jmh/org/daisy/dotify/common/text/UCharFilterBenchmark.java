@@ -0,0 +1,56 @@
+package org.daisy.dotify.common.text;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks {@link UCharFilter#filter(String)} on synthetic text.
+ * @author Joel Håkansson
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class UCharFilterBenchmark {
+	/**
+	 * The length of the text.
+	 */
+	@Param({"100", "10000", "1000000"})
+	public int length;
+
+	private String text;
+	private UCharFilter filter;
+
+	/**
+	 * Creates the text and the filter.
+	 */
+	@Setup
+	public void setup() {
+		text = BenchmarkText.create(length, 4711);
+		filter = new UCharFilter(getClass().getResource("resource-files/benchmark-table.xml"), Locale.ENGLISH);
+	}
+
+	/**
+	 * Filters the text.
+	 * @return returns the result
+	 */
+	@Benchmark
+	public String filter() {
+		return filter.filter(text);
+	}
+
+}
@@ -0,0 +1,72 @@
+package org.daisy.dotify.common.xml;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks {@link XMLTools#detectXmlEncoding(byte[])} on synthetic documents.
+ * @author Joel Håkansson
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class XMLToolsBenchmark {
+	/**
+	 * The number of paragraphs in the document.
+	 */
+	@Param({"1", "100", "10000"})
+	public int paragraphs;
+
+	private byte[] declared;
+	private byte[] undeclared;
+
+	/**
+	 * Creates the documents.
+	 */
+	@Setup
+	public void setup() {
+		StringBuilder body = new StringBuilder("<book>");
+		for (int i=0; i<paragraphs; i++) {
+			body.append("<p>Paragraph ").append(i).append(" with some text.</p>\n");
+		}
+		body.append("</book>");
+		declared = ("<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?>\n" + body).getBytes(StandardCharsets.ISO_8859_1);
+		undeclared = body.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Detects the encoding of a document with an encoding declaration.
+	 * @return returns the encoding
+	 * @throws XmlEncodingDetectionException if the encoding cannot be detected
+	 */
+	@Benchmark
+	public String detectDeclared() throws XmlEncodingDetectionException {
+		return XMLTools.detectXmlEncoding(declared);
+	}
+
+	/**
+	 * Detects the encoding of a document without an XML declaration.
+	 * @return returns the encoding
+	 * @throws XmlEncodingDetectionException if the encoding cannot be detected
+	 */
+	@Benchmark
+	public String detectUndeclared() throws XmlEncodingDetectionException {
+		return XMLTools.detectXmlEncoding(undeclared);
+	}
+
+}
@@ -0,0 +1,29 @@
+package org.daisy.dotify.common.splitter;
+
+/**
+ * <p>Provides a cost function for a split point that can also tell how low
+ * the cost can get before a given unit.</p>
+ *
+ * <p>{@link SplitPointHandler} searches for the best split point by stepping
+ * backwards from the last unit that fits. If the cost function implements
+ * this interface, the search stops as soon as the minimum cost of the
+ * remaining units is higher than the best cost found so far. Otherwise,
+ * all units are checked.</p>
+ *
+ * @author Joel Håkansson
+ * @param <T> the type of split point unit
+ */
+public interface BoundedSplitPointCost<T extends SplitPointUnit> extends SplitPointCost<T> {
+
+	/**
+	 * Returns a lower bound for the cost of breaking after any of the units with an
+	 * index less than or equal to the specified index. A value that is too low
+	 * makes the search slower, whereas a value that is too high can give a different result.
+	 * @param units the units
+	 * @param index the index of the last unit to consider
+	 * @param limit the maximum length to consider
+	 * @return returns the lowest possible cost
+	 */
+	public double getMinimumCost(SplitPointDataSource<T, ?> units, int index, int limit);
+
+}
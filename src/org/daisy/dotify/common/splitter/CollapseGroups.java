@@ -0,0 +1,98 @@
+package org.daisy.dotify.common.splitter;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>Provides the collapse groups of a list of units, found in advance by stepping through
+ * the units from the start in the same way as {@link SplitPointHandler#findCollapse(SplitPointDataSource, StepForward)}.
+ * For each group, the end of the group and the largest unit so far at each position are stored,
+ * so that the group can be stepped through without comparing the units again.</p>
+ *
+ * <p>A group found in advance can only be used if the search starts a new group at the
+ * start of the group. This is always the case, except when the data starts in the middle
+ * of a group. Such a group must be stepped through as usual.</p>
+ *
+ * @author Joel Håkansson
+ */
+final class CollapseGroups {
+	// the exclusive end of the group starting at an index, or -1 if no group starts at the index
+	private final int[] end;
+	// the index of the largest unit of the group so far, or -1 if the unit isn't collapsible
+	private final int[] max;
+
+	private CollapseGroups(int size) {
+		this.end = new int[size];
+		this.max = new int[size];
+		Arrays.fill(end, -1);
+		Arrays.fill(max, -1);
+	}
+
+	/**
+	 * Creates the collapse groups for the specified units.
+	 * @param units the units
+	 * @return returns the collapse groups
+	 */
+	static CollapseGroups of(List<? extends SplitPointUnit> units) {
+		int size = units.size();
+		CollapseGroups ret = new CollapseGroups(size);
+		SplitPointUnit maxUnit = null;
+		int start = -1;
+		for (int i=0; i<size; i++) {
+			SplitPointUnit c = units.get(i);
+			if (c.isCollapsible()) {
+				if (maxUnit!=null && maxUnit.collapsesWith(c)) {
+					if (SplitPointHandler.maxSize(maxUnit, c)==c) {
+						maxUnit = c;
+						ret.max[i] = i;
+					} else {
+						ret.max[i] = ret.max[i-1];
+					}
+				} else {
+					if (start>=0) {
+						ret.end[start] = i;
+					}
+					start = i;
+					maxUnit = c;
+					ret.max[i] = i;
+				}
+			} else if (start>=0) {
+				ret.end[start] = i;
+				start = -1;
+				maxUnit = null;
+			}
+		}
+		if (start>=0) {
+			ret.end[start] = size;
+		}
+		return ret;
+	}
+
+	/**
+	 * Returns true if a group starts at the index.
+	 * @param index the index
+	 * @return true if a group starts at the index, false otherwise
+	 */
+	boolean isStart(int index) {
+		return end[index]>=0;
+	}
+
+	/**
+	 * Gets the end of the group starting at the index.
+	 * @param index the index of the first unit in the group
+	 * @return returns the index following the last unit of the group
+	 */
+	int getEnd(int index) {
+		return end[index];
+	}
+
+	/**
+	 * Gets the index of the largest unit of the group, up to and including the unit at the specified index.
+	 * @param index the index
+	 * @return returns the index of the largest unit so far
+	 */
+	int getMax(int index) {
+		return max[index];
+	}
+
+}
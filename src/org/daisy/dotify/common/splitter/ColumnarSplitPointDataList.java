@@ -0,0 +1,187 @@
+package org.daisy.dotify.common.splitter;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * <p>Provides split point data where the unit properties are stored in primitive
+ * arrays. The properties are read once, when the instance is created, and are
+ * shared by all tails created from it. {@link SplitPointHandler} recognizes this
+ * data source and reads sizes and flags from the arrays instead of asking each
+ * unit.</p>
+ *
+ * <p>The units and supplements must not change after the instance has been created.</p>
+ *
+ * @author Joel Håkansson
+ *
+ * @param <T> the type of split point units
+ */
+public final class ColumnarSplitPointDataList<T extends SplitPointUnit> implements SplitPointDataSource<T, ColumnarSplitPointDataList<T>> {
+	@SuppressWarnings("rawtypes")
+	private static final Supplements EMPTY_SUPPLEMENTS = new Supplements() {
+		@Override
+		public Object get(String id) {
+			return null;
+		}
+	};
+	@SuppressWarnings("rawtypes")
+	private static final ColumnarSplitPointDataList EMPTY_MANAGER = new ColumnarSplitPointDataList<>();
+	private final SplitPointColumns<T> columns;
+	private final List<T> units;
+	private final int offset;
+
+	/**
+	 * Creates a new instance with the specified units
+	 * @param units the units
+	 */
+	@SafeVarargs
+	public ColumnarSplitPointDataList(T ... units) {
+		this(Arrays.asList(units));
+	}
+
+	/**
+	 * Creates a new instance with the specified units
+	 * @param units the units
+	 */
+	public ColumnarSplitPointDataList(List<T> units) {
+		this(units, null);
+	}
+
+	/**
+	 * Creates a new instance with no units
+	 */
+	public ColumnarSplitPointDataList() {
+		this(Collections.emptyList(), null);
+	}
+
+	/**
+	 * Creates a new instance with the specified units and supplements
+	 * @param units the units
+	 * @param supplements the supplements
+	 */
+	public ColumnarSplitPointDataList(List<T> units, Supplements<T> supplements) {
+		this(new SplitPointColumns<>(units, supplements==null?emptySupplements():supplements), 0);
+	}
+
+	ColumnarSplitPointDataList(SplitPointColumns<T> columns, int offset) {
+		this.columns = columns;
+		this.units = columns.getUnits();
+		this.offset = offset;
+	}
+
+	/**
+	 * Returns an empty manager
+	 * @param <T> the type of split point units
+	 * @return returns an empty manager
+	 */
+	@SuppressWarnings("unchecked")
+	public static final <T extends SplitPointUnit> ColumnarSplitPointDataList<T> emptyManager() {
+		return EMPTY_MANAGER;
+	}
+
+	@SuppressWarnings("unchecked")
+	static final <T extends SplitPointUnit> Supplements<T> emptySupplements() {
+		return (Supplements<T>)EMPTY_SUPPLEMENTS;
+	}
+
+	@Override
+	public Supplements<T> getSupplements() {
+		return columns.getSupplements();
+	}
+
+	@Override
+	public boolean hasElementAt(int index) {
+		return columns.size()>index+offset;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return columns.size()<=offset;
+	}
+
+	@Override
+	public T get(int n) {
+		return columns.get(offset+n);
+	}
+
+	/**
+	 * Gets the items before index.
+	 * @param toIndex the index, exclusive
+	 * @return returns a head list
+	 * @throws IndexOutOfBoundsException if the index is beyond the end of the stream
+	 */
+	public List<T> head(int toIndex) {
+		return this.units.subList(offset, offset+toIndex);
+	}
+
+	@Override
+	public List<T> getRemaining() {
+		return this.units.subList(offset, units.size());
+	}
+
+	/**
+	 * Gets a tail list. The tail shares the arrays with this instance.
+	 * @param fromIndex the starting index, inclusive
+	 * @return returns a new split point data source starting from fromIndex
+	 * @throws IndexOutOfBoundsException if the index is beyond the end of the stream
+	 */
+	public ColumnarSplitPointDataList<T> tail(int fromIndex) {
+		return new ColumnarSplitPointDataList<T>(columns, offset+fromIndex);
+	}
+
+	@Override
+	public SplitResult<T, ColumnarSplitPointDataList<T>> splitInRange(int atIndex) {
+		return new DefaultSplitResult<T, ColumnarSplitPointDataList<T>>(head(atIndex), tail(atIndex));
+	}
+
+	@Override
+	public int getSize(int limit) {
+		return Math.min(columns.size()-offset, limit);
+	}
+
+	@Override
+	public ColumnarSplitPointDataList<T> createEmpty() {
+		return emptyManager();
+	}
+
+	@Override
+	public ColumnarSplitPointDataList<T> getDataSource() {
+		return this;
+	}
+
+	SplitPointColumns<T> getColumns() {
+		return columns;
+	}
+
+	int getOffset() {
+		return offset;
+	}
+
+	boolean isBreakable(int n) {
+		return columns.isBreakable(offset+n);
+	}
+
+	boolean isSkippable(int n) {
+		return columns.isSkippable(offset+n);
+	}
+
+	/**
+	 * Finds the last breakable unit at, or before, the specified index.
+	 * @param n the index
+	 * @return returns the index of the last breakable unit, or -1 if there is none
+	 */
+	int previousBreakable(int n) {
+		int ret = columns.previousBreakable(offset, offset+n);
+		return ret<0?-1:ret-offset;
+	}
+
+	boolean fits(float limit, boolean useLastUnitSize, SupplementTracker<T> tracker) {
+		return columns.fits(offset, limit, useLastUnitSize, tracker);
+	}
+
+	int findCollapse(float breakPoint, boolean useLastUnitSize, SupplementTracker<T> tracker) {
+		return columns.findCollapse(offset, breakPoint, useLastUnitSize, tracker);
+	}
+
+}
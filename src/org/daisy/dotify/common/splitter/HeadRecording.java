@@ -0,0 +1,90 @@
+package org.daisy.dotify.common.splitter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>Records the units, supplements and discarded units produced while stepping
+ * forward through a data source with a {@link SizeStep}. The recording makes it
+ * possible to create the head of a split point directly, without stepping
+ * through the units again.</p>
+ * 
+ * <p>A head of a given size can be created from the recording if all of its units
+ * have been recorded and if the last unit isn't collapsible, since the collapse
+ * group of the last unit could otherwise continue after the head.</p>
+ *
+ * @author Joel Håkansson
+ *
+ * @param <T> the type of split point units
+ */
+final class HeadRecording<T extends SplitPointUnit> {
+	private final SplitPointDataSource<T, ?> data;
+	private final List<T> units;
+	private final List<T> supplements;
+	private final List<T> discarded;
+	// counts after each processed unit
+	private int[] unitCount;
+	private int[] supplementCount;
+	private int[] discardedCount;
+	private int processed;
+
+	HeadRecording(SplitPointDataSource<T, ?> data) {
+		this.data = data;
+		this.units = new ArrayList<>();
+		this.supplements = new ArrayList<>();
+		this.discarded = new ArrayList<>();
+		this.unitCount = new int[16];
+		this.supplementCount = new int[16];
+		this.discardedCount = new int[16];
+		this.processed = 0;
+	}
+
+	List<T> getSupplementsList() {
+		return supplements;
+	}
+
+	void addUnit(T unit) {
+		units.add(unit);
+	}
+
+	void addDiscarded(T unit) {
+		discarded.add(unit);
+	}
+
+	void unitProcessed() {
+		if (processed==unitCount.length) {
+			int len = processed*2;
+			unitCount = Arrays.copyOf(unitCount, len);
+			supplementCount = Arrays.copyOf(supplementCount, len);
+			discardedCount = Arrays.copyOf(discardedCount, len);
+		}
+		unitCount[processed] = units.size();
+		supplementCount[processed] = supplements.size();
+		discardedCount[processed] = discarded.size();
+		processed++;
+	}
+
+	/**
+	 * Returns true if a head of the specified size can be created from this recording.
+	 * @param source the data source that the head is taken from
+	 * @param size the size of the head
+	 * @return true if the head can be created, false otherwise
+	 */
+	boolean covers(SplitPointDataSource<?, ?> source, int size) {
+		return source==data && size>0 && size<=processed && !data.get(size-1).isCollapsible();
+	}
+
+	List<T> getUnits(int size) {
+		return new ArrayList<>(units.subList(0, unitCount[size-1]));
+	}
+
+	List<T> getSupplements(int size) {
+		return new ArrayList<>(supplements.subList(0, supplementCount[size-1]));
+	}
+
+	List<T> getDiscarded(int size) {
+		return new ArrayList<>(discarded.subList(0, discardedCount[size-1]));
+	}
+
+}
@@ -0,0 +1,208 @@
+package org.daisy.dotify.common.splitter;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * <p>Provides split point data with a precomputed size index. The index is
+ * computed once, when the instance is created, and is shared by all tails
+ * created from it. This allows {@link SplitPointHandler} to find the
+ * position where the units overflow a break point using binary search
+ * instead of stepping through the units.</p>
+ *
+ * <p>Use this data source instead of {@link SplitPointDataList} when the same
+ * data is split many times, for example when a long sequence of rows is
+ * split into pages. The units and supplements must not change after the
+ * instance has been created.</p>
+ *
+ * <p>Note that the index cannot be used for tails that start in the middle of a
+ * sequence of collapsible units or for tails where a supplement is referenced
+ * both before and after the start of the tail. Such tails are handled in the
+ * same way as a {@link SplitPointDataList}.</p>
+ *
+ * @author Joel Håkansson
+ *
+ * @param <T> the type of split point units
+ */
+public final class IndexedSplitPointDataList<T extends SplitPointUnit> implements SplitPointDataSource<T, IndexedSplitPointDataList<T>> {
+	@SuppressWarnings("rawtypes")
+	private static final Supplements EMPTY_SUPPLEMENTS = new Supplements() {
+		@Override
+		public Object get(String id) {
+			return null;
+		}
+	};
+	@SuppressWarnings("rawtypes")
+	private static final IndexedSplitPointDataList EMPTY_MANAGER = new IndexedSplitPointDataList<>();
+	private final SplitPointSizeIndex<T> index;
+	private final List<T> units;
+	private final int offset;
+
+	/**
+	 * Creates a new instance with the specified units
+	 * @param units the units
+	 */
+	@SafeVarargs
+	public IndexedSplitPointDataList(T ... units) {
+		this(Arrays.asList(units));
+	}
+
+	/**
+	 * Creates a new instance with the specified units
+	 * @param units the units
+	 */
+	public IndexedSplitPointDataList(List<T> units) {
+		this(units, null);
+	}
+
+	/**
+	 * Creates a new instance with no units
+	 */
+	public IndexedSplitPointDataList() {
+		this(Collections.emptyList(), null);
+	}
+
+	/**
+	 * Creates a new instance with the specified units and supplements
+	 * @param units the units
+	 * @param supplements the supplements
+	 */
+	public IndexedSplitPointDataList(List<T> units, Supplements<T> supplements) {
+		this(new SplitPointSizeIndex<>(units, supplements==null?emptySupplements():supplements), 0);
+	}
+
+	private IndexedSplitPointDataList(SplitPointSizeIndex<T> index, int offset) {
+		this.index = index;
+		this.units = index.getUnits();
+		this.offset = offset;
+	}
+
+	/**
+	 * Returns an empty manager
+	 * @param <T> the type of split point units
+	 * @return returns an empty manager
+	 */
+	@SuppressWarnings("unchecked")
+	public static final <T extends SplitPointUnit> IndexedSplitPointDataList<T> emptyManager() {
+		return EMPTY_MANAGER;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static final <T extends SplitPointUnit> Supplements<T> emptySupplements() {
+		return (Supplements<T>)EMPTY_SUPPLEMENTS;
+	}
+
+	@Override
+	public Supplements<T> getSupplements() {
+		return index.getSupplements();
+	}
+
+	@Override
+	public boolean hasElementAt(int index) {
+		return this.units.size()>index+offset;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return this.units.size()<=offset;
+	}
+
+	@Override
+	public T get(int n) {
+		return this.units.get(offset+n);
+	}
+
+	/**
+	 * Gets the items before index.
+	 * @param toIndex the index, exclusive
+	 * @return returns a head list
+	 * @throws IndexOutOfBoundsException if the index is beyond the end of the stream
+	 */
+	public List<T> head(int toIndex) {
+		return this.units.subList(offset, offset+toIndex);
+	}
+
+	@Override
+	public List<T> getRemaining() {
+		return this.units.subList(offset, units.size());
+	}
+
+	/**
+	 * Gets a tail list. The tail shares the index with this instance.
+	 * @param fromIndex the starting index, inclusive
+	 * @return returns a new split point data source starting from fromIndex
+	 * @throws IndexOutOfBoundsException if the index is beyond the end of the stream
+	 */
+	public IndexedSplitPointDataList<T> tail(int fromIndex) {
+		return new IndexedSplitPointDataList<T>(index, offset+fromIndex);
+	}
+
+	@Override
+	public SplitResult<T, IndexedSplitPointDataList<T>> splitInRange(int atIndex) {
+		return new DefaultSplitResult<T, IndexedSplitPointDataList<T>>(head(atIndex), tail(atIndex));
+	}
+
+	@Override
+	public int getSize(int limit) {
+		return Math.min(this.units.size()-offset, limit);
+	}
+
+	@Override
+	public IndexedSplitPointDataList<T> createEmpty() {
+		return emptyManager();
+	}
+
+	@Override
+	public IndexedSplitPointDataList<T> getDataSource() {
+		return this;
+	}
+
+	SplitPointSizeIndex<T> getIndex() {
+		return index;
+	}
+
+	int getOffset() {
+		return offset;
+	}
+
+	/**
+	 * Returns true if the index can be used with this data source.
+	 * @return true if the index can be used, false otherwise
+	 */
+	boolean isSearchable() {
+		return index.isSearchable(offset);
+	}
+
+	/**
+	 * Returns true if the total size of the units is less than or equal to the limit.
+	 * @param limit the limit
+	 * @param useLastUnitSize true if the last unit size should be used for the last unit
+	 * @return true if the units fit, false otherwise
+	 * @throws IllegalStateException if the index cannot be used with this data source
+	 */
+	boolean fits(float limit, boolean useLastUnitSize) {
+		checkSearchable();
+		return index.fits(offset, limit, useLastUnitSize);
+	}
+
+	/**
+	 * Finds the index of the first unit that overflows the break point.
+	 * @param breakPoint the break point
+	 * @param useLastUnitSize true if the last unit size should be used for the last unit
+	 * @return the index of the first unit that overflows, or the number of units if
+	 * 			all units fit
+	 * @throws IllegalStateException if the index cannot be used with this data source
+	 */
+	int findOverflow(float breakPoint, boolean useLastUnitSize) {
+		checkSearchable();
+		return index.findOverflow(offset, breakPoint, useLastUnitSize);
+	}
+
+	private void checkSearchable() {
+		if (!isSearchable()) {
+			throw new IllegalStateException("The index cannot be used at offset " + offset);
+		}
+	}
+
+}
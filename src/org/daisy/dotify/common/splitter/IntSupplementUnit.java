@@ -0,0 +1,18 @@
+package org.daisy.dotify.common.splitter;
+
+/**
+ * Provides a split point unit that refers to its supplements using integer
+ * identifiers, in addition to the string identifiers. See {@link IntSupplements}.
+ * 
+ * @author Joel Håkansson
+ */
+public interface IntSupplementUnit extends SplitPointUnit {
+
+	/**
+	 * Gets the integer identifiers of the supplements, in the same order as
+	 * {@link #getSupplementaryIDs()}.
+	 * @return returns the identifiers, or null if there are none
+	 */
+	public int[] getSupplementaryIntIDs();
+
+}
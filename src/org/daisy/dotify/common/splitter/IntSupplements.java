@@ -0,0 +1,34 @@
+package org.daisy.dotify.common.splitter;
+
+/**
+ * <p>Provides supplementary units that can also be looked up using integer
+ * identifiers. When the supplements of a data source implement this interface,
+ * the integer identifiers of units implementing {@link IntSupplementUnit} are used
+ * instead of the string identifiers. This avoids hashing the string identifiers
+ * each time the size of the units is computed.</p>
+ * 
+ * <p>Each string identifier must correspond to exactly one integer identifier.
+ * Integer identifiers must be non-negative and should be kept small, since they are
+ * used as indices into a bit set.</p>
+ * 
+ * @author Joel Håkansson
+ *
+ * @param <T> the type of units
+ */
+public interface IntSupplements<T> extends Supplements<T> {
+
+	/**
+	 * Gets the unit for the specified integer id.
+	 * @param id the integer identifier for the unit
+	 * @return returns the unit, if it exists, null otherwise
+	 */
+	public T get(int id);
+
+	/**
+	 * Gets the integer identifier for the specified string identifier.
+	 * @param id the string identifier
+	 * @return returns the integer identifier, or -1 if there is no unit for the identifier
+	 */
+	public int getIntID(String id);
+
+}
@@ -0,0 +1,274 @@
+package org.daisy.dotify.common.splitter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * <p>Provides split point data that is read from an iterator as it is needed.
+ * The units are stored in fixed size chunks. Each chunk is filled from the
+ * iterator the first time a unit in it is requested.</p>
+ *
+ * <p>A chunk only refers to the chunk after it, and a data source only refers
+ * to the chunk where it starts. Therefore, when the data has been split and the
+ * head and any earlier tails are no longer in use, the chunks before the
+ * current tail can be garbage collected. This keeps the memory use bounded
+ * when a long sequence of units is split from start to end.</p>
+ *
+ * <p>Note that {@link #getRemaining()} reads all remaining units into memory.</p>
+ *
+ * @author Joel Håkansson
+ *
+ * @param <T> the type of split point units
+ */
+public final class LazySplitPointDataSource<T extends SplitPointUnit> implements SplitPointDataSource<T, LazySplitPointDataSource<T>> {
+	private static final int DEFAULT_CHUNK_SIZE = 256;
+	@SuppressWarnings("rawtypes")
+	private static final Supplements EMPTY_SUPPLEMENTS = new Supplements() {
+		@Override
+		public Object get(String id) {
+			return null;
+		}
+	};
+	@SuppressWarnings("rawtypes")
+	private static final LazySplitPointDataSource EMPTY_MANAGER = new LazySplitPointDataSource<>(Collections.emptyIterator());
+	private final Chunk<T> chunk;
+	private final int offset;
+	private final Supplements<T> supplements;
+
+	/**
+	 * Creates a new instance with the specified units
+	 * @param units the units
+	 */
+	public LazySplitPointDataSource(Iterator<T> units) {
+		this(units, null);
+	}
+
+	/**
+	 * Creates a new instance with the specified units and supplements
+	 * @param units the units
+	 * @param supplements the supplements
+	 */
+	public LazySplitPointDataSource(Iterator<T> units, Supplements<T> supplements) {
+		this(units, supplements, DEFAULT_CHUNK_SIZE);
+	}
+
+	/**
+	 * Creates a new instance with the specified units, supplements and chunk size
+	 * @param units the units
+	 * @param supplements the supplements
+	 * @param chunkSize the number of units in each chunk
+	 * @throws IllegalArgumentException if the chunk size is less than 1
+	 */
+	public LazySplitPointDataSource(Iterator<T> units, Supplements<T> supplements, int chunkSize) {
+		if (chunkSize<1) {
+			throw new IllegalArgumentException("Value must be greater than zero: " + chunkSize);
+		}
+		// the first chunk is empty, the units are read when they are needed
+		this.chunk = new Chunk<>(new Producer<>(units, chunkSize), 0);
+		this.offset = 0;
+		this.supplements = supplements==null?emptySupplements():supplements;
+	}
+
+	private LazySplitPointDataSource(Chunk<T> chunk, int offset, Supplements<T> supplements) {
+		this.chunk = chunk;
+		this.offset = offset;
+		this.supplements = supplements;
+	}
+
+	/**
+	 * Returns an empty manager
+	 * @param <T> the type of split point units
+	 * @return returns an empty manager
+	 */
+	@SuppressWarnings("unchecked")
+	public static final <T extends SplitPointUnit> LazySplitPointDataSource<T> emptyManager() {
+		return EMPTY_MANAGER;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static final <T extends SplitPointUnit> Supplements<T> emptySupplements() {
+		return (Supplements<T>)EMPTY_SUPPLEMENTS;
+	}
+
+	private static final class Producer<T> {
+		private final Iterator<T> units;
+		private final int chunkSize;
+
+		private Producer(Iterator<T> units, int chunkSize) {
+			this.units = units;
+			this.chunkSize = chunkSize;
+		}
+	}
+
+	private static final class Chunk<T> {
+		private final Producer<T> producer;
+		private final Object[] units;
+		private final int size;
+		private Chunk<T> next;
+		private boolean hasNext;
+
+		/**
+		 * Creates a new chunk. Must be called with the lock on the producer, or before
+		 * the producer is shared.
+		 */
+		private Chunk(Producer<T> producer, int capacity) {
+			this.producer = producer;
+			this.units = new Object[capacity];
+			int i = 0;
+			while (i<capacity && producer.units.hasNext()) {
+				units[i] = producer.units.next();
+				i++;
+			}
+			this.size = i;
+			this.next = null;
+			this.hasNext = false;
+		}
+
+		@SuppressWarnings("unchecked")
+		private T get(int index) {
+			return (T)units[index];
+		}
+
+		/**
+		 * Gets the next chunk, reading it from the producer if needed.
+		 * @return returns the next chunk, or null if there are no more units
+		 */
+		private Chunk<T> next() {
+			synchronized (producer) {
+				if (!hasNext) {
+					// a chunk that isn't full is the last one
+					if (size==units.length && producer.units.hasNext()) {
+						next = new Chunk<>(producer, producer.chunkSize);
+					}
+					hasNext = true;
+				}
+				return next;
+			}
+		}
+	}
+
+	@Override
+	public Supplements<T> getSupplements() {
+		return supplements;
+	}
+
+	@Override
+	public boolean hasElementAt(int index) {
+		Chunk<T> c = chunk;
+		int i = offset+index;
+		while (c!=null && i>=c.size) {
+			i-=c.size;
+			c = c.next();
+		}
+		return c!=null;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return !hasElementAt(0);
+	}
+
+	@Override
+	public T get(int index) {
+		Chunk<T> c = chunk;
+		int i = offset+index;
+		while (c!=null && i>=c.size) {
+			i-=c.size;
+			c = c.next();
+		}
+		if (c==null) {
+			throw new IndexOutOfBoundsException("Index: " + index);
+		}
+		return c.get(i);
+	}
+
+	/**
+	 * Gets the items before index.
+	 * @param toIndex the index, exclusive
+	 * @return returns a head list
+	 * @throws IndexOutOfBoundsException if the index is beyond the end of the stream
+	 */
+	public List<T> head(int toIndex) {
+		List<T> ret = new ArrayList<>(toIndex);
+		Chunk<T> c = chunk;
+		int i = offset;
+		while (ret.size()<toIndex) {
+			while (c!=null && i>=c.size) {
+				i-=c.size;
+				c = c.next();
+			}
+			if (c==null) {
+				throw new IndexOutOfBoundsException("Index: " + toIndex);
+			}
+			ret.add(c.get(i));
+			i++;
+		}
+		return ret;
+	}
+
+	@Override
+	public List<T> getRemaining() {
+		List<T> ret = new ArrayList<>();
+		Chunk<T> c = chunk;
+		int i = offset;
+		while (c!=null) {
+			for (; i<c.size; i++) {
+				ret.add(c.get(i));
+			}
+			i = 0;
+			c = c.next();
+		}
+		return ret;
+	}
+
+	/**
+	 * Gets a tail list. The tail shares the chunks with this instance.
+	 * @param fromIndex the starting index, inclusive
+	 * @return returns a new split point data source starting from fromIndex
+	 * @throws IndexOutOfBoundsException if the index is beyond the end of the stream
+	 */
+	public LazySplitPointDataSource<T> tail(int fromIndex) {
+		Chunk<T> c = chunk;
+		int i = offset+fromIndex;
+		// the tail may start at the end of a chunk, this avoids reading the next chunk
+		while (c!=null && i>c.size) {
+			i-=c.size;
+			c = c.next();
+		}
+		if (c==null) {
+			throw new IndexOutOfBoundsException("Index: " + fromIndex);
+		}
+		return new LazySplitPointDataSource<>(c, i, supplements);
+	}
+
+	@Override
+	public SplitResult<T, LazySplitPointDataSource<T>> splitInRange(int atIndex) {
+		return new DefaultSplitResult<T, LazySplitPointDataSource<T>>(head(atIndex), tail(atIndex));
+	}
+
+	@Override
+	public int getSize(int limit) {
+		int ret = 0;
+		Chunk<T> c = chunk;
+		int i = offset;
+		while (c!=null && ret<limit) {
+			ret += c.size-i;
+			i = 0;
+			c = ret<limit?c.next():null;
+		}
+		return Math.min(ret, limit);
+	}
+
+	@Override
+	public LazySplitPointDataSource<T> createEmpty() {
+		return emptyManager();
+	}
+
+	@Override
+	public LazySplitPointDataSource<T> getDataSource() {
+		return this;
+	}
+
+}
@@ -0,0 +1,158 @@
+package org.daisy.dotify.common.splitter;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * <p>Tries several candidate split points for the same data in parallel.
+ * Each candidate is a combination of break point, cost and options, see
+ * {@link SplitPointCandidate}. The candidates are evaluated independently
+ * using a {@link SplitPointHandler} and the tasks are run in a {@link ForkJoinPool}.</p>
+ * 
+ * <p>The data is shared between the tasks and must therefore not change while the
+ * candidates are evaluated. This is the case with {@link SplitPointDataList},
+ * {@link IndexedSplitPointDataList} and {@link ColumnarSplitPointDataList}, provided
+ * that the units and supplements don't change. The cost functions must be thread safe.</p>
+ * 
+ * @author Joel Håkansson
+ *
+ * @param <T> the type of split point units
+ * @param <U> the type of data source
+ */
+public class ParallelSplitPointFinder<T extends SplitPointUnit, U extends SplitPointDataSource<T, U>> {
+	private final SplitPointHandler<T, U> handler;
+	private final ForkJoinPool pool;
+
+	/**
+	 * Provides a builder for parallel split point finders.
+	 *
+	 * @param <T> the type of split point units
+	 * @param <U> the type of data source
+	 */
+	public static class Builder<T extends SplitPointUnit, U extends SplitPointDataSource<T, U>> {
+		private SplitPointHandler<T, U> handler = new SplitPointHandler<>();
+		private ForkJoinPool pool = ForkJoinPool.commonPool();
+
+		/**
+		 * Creates a new builder.
+		 */
+		public Builder() {
+			super();
+		}
+
+		/**
+		 * Sets the split point handler used to evaluate the candidates.
+		 * @param value the handler
+		 * @return returns this builder
+		 */
+		public Builder<T, U> handler(SplitPointHandler<T, U> value) {
+			if (value==null) {
+				throw new IllegalArgumentException("Null handler not allowed.");
+			}
+			this.handler = value;
+			return this;
+		}
+
+		/**
+		 * Sets the pool used to evaluate the candidates. The default is
+		 * the common pool.
+		 * @param value the pool
+		 * @return returns this builder
+		 */
+		public Builder<T, U> pool(ForkJoinPool value) {
+			if (value==null) {
+				throw new IllegalArgumentException("Null pool not allowed.");
+			}
+			this.pool = value;
+			return this;
+		}
+
+		/**
+		 * Creates a new parallel split point finder with the current configuration.
+		 * @return returns a new parallel split point finder
+		 */
+		public ParallelSplitPointFinder<T, U> build() {
+			return new ParallelSplitPointFinder<>(this);
+		}
+	}
+
+	/**
+	 * Creates a new parallel split point finder with the default configuration.
+	 */
+	public ParallelSplitPointFinder() {
+		this(new Builder<T, U>());
+	}
+
+	private ParallelSplitPointFinder(Builder<T, U> builder) {
+		this.handler = builder.handler;
+		this.pool = builder.pool;
+	}
+
+	/**
+	 * Finds the split point specifications for all candidates.
+	 * @param data the data
+	 * @param candidates the candidates
+	 * @return returns the specifications, in the same order as the candidates
+	 */
+	public List<SplitPointSpecification> findAll(U data, List<SplitPointCandidate<T>> candidates) {
+		List<ForkJoinTask<SplitPointSpecification>> tasks = new ArrayList<>(candidates.size());
+		for (SplitPointCandidate<T> c : candidates) {
+			tasks.add(pool.submit(()->c.find(handler, data)));
+		}
+		List<SplitPointSpecification> ret = new ArrayList<>(candidates.size());
+		for (ForkJoinTask<SplitPointSpecification> t : tasks) {
+			ret.add(t.join());
+		}
+		return ret;
+	}
+
+	/**
+	 * <p>Finds the best split point specification among the candidates. To compare
+	 * the candidates, the data is split according to each specification and the
+	 * resulting split points are compared using the supplied comparator. Both
+	 * steps are performed in parallel.</p>
+	 * 
+	 * <p>The best candidate is the greatest split point according to the comparator.
+	 * If several candidates are equally good, the first of those is returned.</p>
+	 * 
+	 * @param data the data
+	 * @param candidates the candidates
+	 * @param comparator the comparator
+	 * @return returns the specification of the best candidate
+	 * @throws IllegalArgumentException if the list of candidates is empty
+	 */
+	public SplitPointSpecification find(U data, List<SplitPointCandidate<T>> candidates, Comparator<? super SplitPoint<T, U>> comparator) {
+		if (candidates.isEmpty()) {
+			throw new IllegalArgumentException("No candidates.");
+		}
+		List<ForkJoinTask<Result>> tasks = new ArrayList<>(candidates.size());
+		for (SplitPointCandidate<T> c : candidates) {
+			tasks.add(pool.submit(()->{
+				SplitPointSpecification spec = c.find(handler, data);
+				return new Result(spec, handler.split(spec, data));
+			}));
+		}
+		Result best = null;
+		for (ForkJoinTask<Result> t : tasks) {
+			Result r = t.join();
+			if (best==null || comparator.compare(r.result, best.result)>0) {
+				best = r;
+			}
+		}
+		return best.spec;
+	}
+
+	private class Result {
+		private final SplitPointSpecification spec;
+		private final SplitPoint<T, U> result;
+
+		private Result(SplitPointSpecification spec, SplitPoint<T, U> result) {
+			this.spec = spec;
+			this.result = result;
+		}
+	}
+
+}
@@ -1,24 +1,65 @@
 package org.daisy.dotify.common.splitter;
 
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
-
 class SizeStep<T extends SplitPointUnit> implements StepForward<T> {
-	private float size = 0;
-	private final Supplements<T> map;
-	private final Set<String> ids;
-	private final float breakPoint;
-	private final boolean useLastUnitSize;
+	private float size;
+	private final SupplementTracker<T> tracker;
+	private float breakPoint;
+	private boolean useLastUnitSize;
 	private T lastUnit;
-	private boolean hasSupplements;
+	private HeadRecording<T> recording;
+	// the size of all units seen so far, without collapsing
+	private float unitTotal;
+	// the size of the supplements added so far, including the overhead
+	private float supplementTotal;
+	private float overflowSize;
 	
 	SizeStep(float breakPoint, Supplements<T> map, boolean useLastUnitSize) {
+		this.tracker = new SupplementTracker<>(map);
+		reset(breakPoint, map, useLastUnitSize);
+	}
+
+	/**
+	 * Resets this instance so that it can be used again.
+	 * @param breakPoint the break point
+	 * @param map the supplements
+	 * @param useLastUnitSize true if the last unit size should be used for the last unit
+	 */
+	void reset(float breakPoint, Supplements<T> map, boolean useLastUnitSize) {
 		this.breakPoint = breakPoint;
 		this.useLastUnitSize = useLastUnitSize;
-		this.map = map;
-		this.ids = new HashSet<>();
-		this.hasSupplements = false;
+		this.tracker.reset(map);
+		this.size = 0;
+		this.lastUnit = null;
+		this.unitTotal = 0;
+		this.supplementTotal = 0;
+		this.overflowSize = 0;
+	}
+
+	/**
+	 * Records the units from now on. Resetting this instance does
+	 * not affect the recording.
+	 * @param recording the recording, or null to stop recording
+	 */
+	void record(HeadRecording<T> recording) {
+		this.recording = recording;
+	}
+
+	SupplementTracker<T> getTracker() {
+		return tracker;
+	}
+
+	/**
+	 * <p>Gets a lower bound for the total size of the units seen before
+	 * {@link #overflows(SplitPointUnit)} returned true, as if none of the units
+	 * had been collapsed. This is the sum of the unit sizes, including discarded
+	 * units and the unit being tested, and the supplements of the units
+	 * before the unit being tested.</p>
+	 * <p>The last unit size is not used, so the value is only a lower bound
+	 * if the last of the units seen is not the last unit of the data.</p>
+	 * @return returns the size, or 0 if the units have not overflowed
+	 */
+	float getOverflowSize() {
+		return overflowSize;
 	}
 
 	@Override
@@ -27,58 +68,56 @@ class SizeStep<T extends SplitPointUnit> implements StepForward<T> {
 			size+=lastUnit.getUnitSize();
 			lastUnit = null;
 		}
-		List<String> idList = unit.getSupplementaryIDs();
-		if (idList!=null) {
-			for (String id : idList) {
-				if (ids.add(id)) { //id didn't already exist in the list
-					T item = map.get(id);
-					if (item!=null) {
-						if (!hasSupplements) {
-							hasSupplements = true;
-							size+=map.getOverhead();
-						}
-						size+=item.getUnitSize();
-					}
-				}
-			}
+		float before = size;
+		if (recording!=null) {
+			size = tracker.add(unit, size, recording.getSupplementsList());
+			recording.addUnit(unit);
+		} else {
+			size = tracker.add(unit, size);
 		}
+		supplementTotal += size-before;
+		unitTotal += unit.getUnitSize();
 		lastUnit=unit;
 	}
 
 	@Override
 	public boolean overflows(T buffer) {
-		return size+(
+		boolean ret = size+(
 				buffer!=null?
 						lastUnitSize(buffer) + (lastUnit!=null?lastUnit.getUnitSize():0):
 						lastUnit!=null?(useLastUnitSize?lastUnit.getLastUnitSize():lastUnit.getUnitSize()):0
 					)>breakPoint;
+		if (ret) {
+			// the supplements of the buffer are not included, since a peek counts an id
+			// that occurs more than once in the unit more than once
+			overflowSize = unitTotal + supplementTotal + (buffer!=null?buffer.getUnitSize():0);
+		}
+		return ret;
 	}
 	
 	private float lastUnitSize(T b) {
-		float ret = 0;
-		List<String> idList = b.getSupplementaryIDs();
-		if (idList!=null) {
-			boolean hasAddedOverhead = hasSupplements; 
-			for (String id : idList) {
-				if (!ids.contains(id)) { //id didn't already exist in the list
-					T item = map.get(id);
-					if (item!=null) {
-						if (!hasAddedOverhead) {
-							hasAddedOverhead = true;
-							ret+=map.getOverhead();
-						}
-						ret+=item.getUnitSize();
-					}
-				}
-			}
-		}
+		float ret = tracker.peek(b, 0);
 		ret += useLastUnitSize?b.getLastUnitSize():b.getUnitSize();
 		return ret;
 	}
 
 	@Override
 	public void addDiscarded(T unit) {
-		//Nothing to do
+		unitTotal += unit.getUnitSize();
+		if (recording!=null) {
+			recording.addDiscarded(unit);
+		}
+	}
+
+	@Override
+	public void unitProcessed() {
+		if (recording!=null) {
+			recording.unitProcessed();
+		}
+		SplitterMetrics metrics = tracker.getMetrics();
+		if (metrics!=null) {
+			metrics.addCollapseUnits(1);
+		}
 	}
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,57 @@
+package org.daisy.dotify.common.splitter;
+
+import java.util.Arrays;
+
+/**
+ * Provides a combination of break point, cost and options to try
+ * when searching for a split point with a {@link ParallelSplitPointFinder}.
+ * 
+ * @author Joel Håkansson
+ *
+ * @param <T> the type of split point units
+ */
+public final class SplitPointCandidate<T extends SplitPointUnit> {
+	private final float breakPoint;
+	private final SplitPointCost<T> cost;
+	private final SplitOption[] options;
+
+	/**
+	 * Creates a new candidate that uses the default cost.
+	 * @param breakPoint the break point
+	 * @param options the split options
+	 */
+	public SplitPointCandidate(float breakPoint, SplitOption ... options) {
+		this.breakPoint = breakPoint;
+		this.cost = null;
+		this.options = Arrays.copyOf(options, options.length);
+	}
+
+	/**
+	 * Creates a new candidate.
+	 * @param breakPoint the break point
+	 * @param cost the cost function
+	 * @param options the split options
+	 * @throws IllegalArgumentException if cost is null
+	 */
+	public SplitPointCandidate(float breakPoint, SplitPointCost<T> cost, SplitOption ... options) {
+		if (cost==null) {
+			throw new IllegalArgumentException("Null cost not allowed.");
+		}
+		this.breakPoint = breakPoint;
+		this.cost = cost;
+		this.options = Arrays.copyOf(options, options.length);
+	}
+
+	/**
+	 * Gets the break point.
+	 * @return the break point
+	 */
+	public float getBreakPoint() {
+		return breakPoint;
+	}
+
+	<U extends SplitPointDataSource<T, U>> SplitPointSpecification find(SplitPointHandler<T, U> handler, U data) {
+		return cost==null?handler.find(breakPoint, data, options):handler.find(breakPoint, data, cost, options);
+	}
+
+}
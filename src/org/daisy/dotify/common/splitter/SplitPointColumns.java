@@ -0,0 +1,251 @@
+package org.daisy.dotify.common.splitter;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * <p>Stores the properties of a list of units in primitive arrays. The
+ * properties are read once, when the instance is created, so that the
+ * units don't have to be asked again each time the data is split.</p>
+ *
+ * <p>The units themselves are kept in an object array, since they are still
+ * needed for collapsing and supplements, and of course in the result.
+ * An instance created from arrays only has no units, and can only be
+ * used to find split points.</p>
+ *
+ * @author Joel Håkansson
+ *
+ * @param <T> the type of split point units
+ */
+final class SplitPointColumns<T extends SplitPointUnit> {
+	private final Object[] units;
+	private final List<T> list;
+	private final Supplements<T> supplements;
+	private final float[] unitSize;
+	private final float[] lastUnitSize;
+	private final BitSet breakable;
+	private final BitSet skippable;
+	private final BitSet collapsible;
+	private final BitSet hasSupplements;
+	private final int size;
+
+	@SuppressWarnings("unchecked")
+	SplitPointColumns(List<T> units, Supplements<T> supplements) {
+		this.units = units.toArray();
+		this.list = Collections.unmodifiableList((List<T>)(List<?>)Arrays.asList(this.units));
+		this.supplements = supplements;
+		this.size = this.units.length;
+		this.unitSize = new float[size];
+		this.lastUnitSize = new float[size];
+		this.breakable = new BitSet(size);
+		this.skippable = new BitSet(size);
+		this.collapsible = new BitSet(size);
+		this.hasSupplements = new BitSet(size);
+		for (int i=0; i<size; i++) {
+			T unit = (T)this.units[i];
+			unitSize[i] = unit.getUnitSize();
+			lastUnitSize[i] = unit.getLastUnitSize();
+			breakable.set(i, unit.isBreakable());
+			skippable.set(i, unit.isSkippable());
+			collapsible.set(i, unit.isCollapsible());
+			List<String> ids = unit.getSupplementaryIDs();
+			hasSupplements.set(i, ids!=null && !ids.isEmpty());
+		}
+	}
+
+	/**
+	 * Creates a new instance from arrays, without units. None of the units are
+	 * collapsible or have supplements. The arrays are used as is and must not
+	 * change while the instance is in use.
+	 * @param unitSize the unit sizes
+	 * @param lastUnitSize the last unit sizes
+	 * @param breakable the breakable units
+	 * @param skippable the skippable units
+	 * @param supplements the supplements
+	 */
+	SplitPointColumns(float[] unitSize, float[] lastUnitSize, BitSet breakable, BitSet skippable, Supplements<T> supplements) {
+		this.units = null;
+		this.list = null;
+		this.supplements = supplements;
+		this.size = unitSize.length;
+		this.unitSize = unitSize;
+		this.lastUnitSize = lastUnitSize;
+		this.breakable = breakable;
+		this.skippable = skippable;
+		this.collapsible = new BitSet();
+		this.hasSupplements = new BitSet();
+	}
+
+	List<T> getUnits() {
+		return list;
+	}
+
+	Supplements<T> getSupplements() {
+		return supplements;
+	}
+
+	int size() {
+		return size;
+	}
+
+	@SuppressWarnings("unchecked")
+	T get(int i) {
+		return (T)units[i];
+	}
+
+	float getUnitSize(int i) {
+		return unitSize[i];
+	}
+
+	float getLastUnitSize(int i) {
+		return lastUnitSize[i];
+	}
+
+	boolean isBreakable(int i) {
+		return breakable.get(i);
+	}
+
+	boolean isSkippable(int i) {
+		return skippable.get(i);
+	}
+
+	boolean isCollapsible(int i) {
+		return collapsible.get(i);
+	}
+
+	boolean hasSupplements(int i) {
+		return hasSupplements.get(i);
+	}
+
+	/**
+	 * Finds the last breakable unit in the range.
+	 * @param from the first index, inclusive
+	 * @param to the last index, inclusive
+	 * @return returns the index of the last breakable unit, or -1 if there is none
+	 */
+	int previousBreakable(int from, int to) {
+		int ret = breakable.previousSetBit(to);
+		return ret>=from?ret:-1;
+	}
+
+	/**
+	 * Returns true if the units starting at offset fit within the limit.
+	 * This is equivalent to {@link SplitPointHandler#fits(SplitPointDataSource, float, boolean)}.
+	 * @param offset the offset
+	 * @param limit the limit
+	 * @param useLastUnitSize true if the last unit size should be used for the last unit
+	 * @param tracker a supplement tracker to use
+	 * @return true if the units fit, false otherwise
+	 */
+	boolean fits(int offset, float limit, boolean useLastUnitSize, SupplementTracker<T> tracker) {
+		float ret = 0;
+		tracker.reset(supplements);
+		int last = size-1;
+		int i;
+		// we check up to the limit and beyond by one element, to make sure that we check enough units
+		for (i=offset; i<=last && ret<=limit; i++) {
+			if (hasSupplements.get(i)) {
+				ret = tracker.add(get(i), ret);
+			}
+			//last unit?
+			if (useLastUnitSize && i==last) {
+				ret += lastUnitSize[i];
+			} else {
+				ret += unitSize[i];
+			}
+		}
+		SplitterMetrics metrics = tracker.getMetrics();
+		if (metrics!=null) {
+			metrics.addSizeUnits(i-offset);
+		}
+		return ret<=limit;
+	}
+
+	/**
+	 * Finds the index of the last unit that fits, relative to the offset. This is
+	 * equivalent to {@link SplitPointHandler#findCollapse(SplitPointDataSource, StepForward)}
+	 * with a {@link SizeStep}.
+	 * @param offset the offset
+	 * @param breakPoint the break point
+	 * @param useLastUnitSize true if the last unit size should be used for the last unit
+	 * @param tracker a supplement tracker to use
+	 * @return returns the index of the last unit that fits, relative to the offset
+	 */
+	int findCollapse(int offset, float breakPoint, boolean useLastUnitSize, SupplementTracker<T> tracker) {
+		tracker.reset(supplements);
+		int units = -1;
+		// the index of the largest unit in the current collapse group, or -1
+		int max = -1;
+		// the size of the units that have been added, except the last one
+		float size = 0;
+		// the index of the last unit added, or -1
+		int lastUnit = -1;
+		for (int i=offset; i<this.size; i++) {
+			units++;
+			int add1 = -1;
+			int add2 = -1;
+			if (collapsible.get(i)) {
+				if (max>=0) {
+					if (get(max).collapsesWith(get(i))) {
+						if (unitSize[max]<unitSize[i]) {
+							max = i;
+						}
+					} else {
+						add1 = max;
+						max = i;
+					}
+				} else {
+					max = i;
+				}
+			} else {
+				if (max>=0) {
+					add1 = max;
+					max = -1;
+				}
+				add2 = i;
+			}
+			if (add1>=0) {
+				size = addUnit(size, lastUnit, add1, tracker);
+				lastUnit = add1;
+			}
+			if (add2>=0) {
+				size = addUnit(size, lastUnit, add2, tracker);
+				lastUnit = add2;
+			}
+			float rest;
+			if (max>=0) {
+				float b = hasSupplements.get(max)?tracker.peek(get(max), 0):0;
+				b += useLastUnitSize?lastUnitSize[max]:unitSize[max];
+				rest = b + (lastUnit>=0?unitSize[lastUnit]:0);
+			} else {
+				rest = lastUnit>=0?(useLastUnitSize?lastUnitSize[lastUnit]:unitSize[lastUnit]):0;
+			}
+			if (size+rest>breakPoint) { //time to exit
+				collapseUnits(tracker, units+1);
+				return units-1;
+			}
+		}
+		collapseUnits(tracker, units+1);
+		return units;
+	}
+
+	private static void collapseUnits(SupplementTracker<?> tracker, int value) {
+		SplitterMetrics metrics = tracker.getMetrics();
+		if (metrics!=null) {
+			metrics.addCollapseUnits(value);
+		}
+	}
+
+	private float addUnit(float size, int lastUnit, int unit, SupplementTracker<T> tracker) {
+		if (lastUnit>=0) {
+			size+=unitSize[lastUnit];
+		}
+		if (hasSupplements.get(unit)) {
+			size = tracker.add(get(unit), size);
+		}
+		return size;
+	}
+
+}
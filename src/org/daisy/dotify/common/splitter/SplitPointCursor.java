@@ -0,0 +1,157 @@
+package org.daisy.dotify.common.splitter;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * <p>Provides a cursor for splitting data into pages, one page at a time, with
+ * support for backtracking. The current position can be marked with {@link #mark()}
+ * and returned to with {@link #reset()}. Marks are kept in a stack, so that
+ * several positions can be marked before returning to them in reverse order.</p>
+ *
+ * <p>Since a data source is not modified when it is split, a mark only has to keep
+ * the tail at that position, and returning to it does not require the data to be
+ * split again. Supplements are tracked per page, so no supplement state needs to be
+ * kept between pages. Internal buffers are reused from one page to the next,
+ * as with {@link SplitPointHandler#splitAll(java.util.Iterator, SplitPointDataSource, SplitOption...)}.</p>
+ *
+ * <p>This class is not thread safe.</p>
+ *
+ * @author Joel Håkansson
+ *
+ * @param <T> the type of split point units
+ * @param <U> the type of data source
+ */
+public class SplitPointCursor<T extends SplitPointUnit, U extends SplitPointDataSource<T, U>> {
+	private final SplitPointHandler<T, U> handler;
+	private final Deque<State<U>> marks;
+	private final State<U> initial;
+	private State<U> state;
+	private SizeStep<T> step;
+
+	private static class State<U> {
+		private final U data;
+		private final int pages;
+
+		private State(U data, int pages) {
+			this.data = data;
+			this.pages = pages;
+		}
+	}
+
+	/**
+	 * Creates a new cursor at the start of the data.
+	 * @param handler the split point handler to use
+	 * @param data the data to split
+	 * @throws IllegalArgumentException if handler or data is null
+	 */
+	public SplitPointCursor(SplitPointHandler<T, U> handler, U data) {
+		if (handler==null) {
+			throw new IllegalArgumentException("Null handler not allowed.");
+		}
+		if (data==null) {
+			throw new IllegalArgumentException("Null data not allowed.");
+		}
+		this.handler = handler;
+		this.marks = new ArrayDeque<>();
+		this.initial = new State<>(data, 0);
+		this.state = initial;
+		this.step = null;
+	}
+
+	/**
+	 * Returns true if there is more data to split.
+	 * @return true if there is more data, false otherwise
+	 */
+	public boolean hasNext() {
+		return !state.data.isEmpty();
+	}
+
+	/**
+	 * Splits the remaining data at, or before, the supplied breakPoint and moves
+	 * the cursor to the tail of the result.
+	 * @param breakPoint the split point
+	 * @param options the split options
+	 * @return returns a split point result
+	 */
+	public SplitPoint<T, U> next(float breakPoint, SplitOption ... options) {
+		return next(breakPoint, SplitPointHandler.defaultCost(), options);
+	}
+
+	/**
+	 * Splits the remaining data at, or before, the supplied breakPoint and moves
+	 * the cursor to the tail of the result.
+	 * @param breakPoint the split point
+	 * @param cost the cost function used when determining the optimal <i>forced</i> split point. In other words,
+	 * 		 the cost function is only used if there are no breakable units available.
+	 * @param options the split options
+	 * @return returns a split point result
+	 * @throws IllegalArgumentException if cost is null
+	 */
+	public SplitPoint<T, U> next(float breakPoint, SplitPointCost<T> cost, SplitOption ... options) {
+		if (cost==null) {
+			throw new IllegalArgumentException("Null cost not allowed.");
+		}
+		SplitPointHandler.SplitOptions opts = SplitPointHandler.SplitOptions.parse(options);
+		if (step==null) {
+			step = new SizeStep<>(breakPoint, state.data.getSupplements(), opts.useLastUnitSize);
+		}
+		SplitPointSpecification spec = handler.find(breakPoint, state.data, cost, opts, step, true);
+		SplitPoint<T, U> ret = handler.split(spec, state.data, step.getTracker());
+		state = new State<>(ret.getTail(), state.pages+1);
+		return ret;
+	}
+
+	/**
+	 * Gets the data that remains to be split.
+	 * @return returns the remaining data
+	 */
+	public U getData() {
+		return state.data;
+	}
+
+	/**
+	 * Gets the number of times that the data has been split since the start.
+	 * @return returns the number of pages
+	 */
+	public int getPageCount() {
+		return state.pages;
+	}
+
+	/**
+	 * Marks the current position for later use with {@link #reset()}. The mark
+	 * is added on top of the marks made previously.
+	 */
+	public void mark() {
+		marks.push(state);
+	}
+
+	/**
+	 * Returns to the last marked position, or the start, if there are no marks.
+	 * The mark is kept, so that the cursor can be reset to it again.
+	 */
+	public void reset() {
+		State<U> mark = marks.peek();
+		state = mark!=null?mark:initial;
+	}
+
+	/**
+	 * Removes the last mark, without changing the current position.
+	 * @throws IllegalStateException if there are no marks
+	 */
+	public void unmark() {
+		if (marks.isEmpty()) {
+			throw new IllegalStateException("No marks.");
+		}
+		marks.pop();
+	}
+
+	/**
+	 * Gets the number of marks.
+	 * @return returns the number of marks
+	 */
+	public int getMarkCount() {
+		return marks.size();
+	}
+
+}
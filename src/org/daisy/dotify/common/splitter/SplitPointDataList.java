@@ -26,6 +26,7 @@ public final class SplitPointDataList<T extends SplitPointUnit> implements Split
 	private final List<T> units;
 	private final Supplements<T> supplements;
 	private final int offset;
+	private final CollapseGroups collapseGroups;
 
 	/**
 	 * Creates a new instance with the specified units
@@ -72,12 +73,35 @@ public final class SplitPointDataList<T extends SplitPointUnit> implements Split
 	 * @param supplements the supplements
 	 */
 	public SplitPointDataList(List<T> units, Supplements<T> supplements) {
-		this(units, supplements, 0);
+		this(units, supplements, 0, null);
 	}
 
-	private SplitPointDataList(List<T> units, Supplements<T> supplements, int offset) {
+	/**
+	 * <p>Creates a new instance with the specified units and supplements, where the
+	 * groups of adjacent collapsible units are found in advance. When splitting,
+	 * the units within such a group are not compared to each other again,
+	 * which is useful if the same data is split many times.</p>
+	 * 
+	 * <p>The groups are found by stepping through the units from the start.
+	 * If a tail starts in the middle of a group, the rest of that group is
+	 * compared as usual. The result of a split is the same as without
+	 * preprocessing, including the discarded units.</p>
+	 * 
+	 * <p>The units must not change after this method has been called.</p>
+	 * 
+	 * @param units the units
+	 * @param supplements the supplements
+	 * @param <T> the type of split point units
+	 * @return returns a new instance
+	 */
+	public static <T extends SplitPointUnit> SplitPointDataList<T> withCollapseGroups(List<T> units, Supplements<T> supplements) {
+		return new SplitPointDataList<>(units, supplements, 0, CollapseGroups.of(units));
+	}
+
+	private SplitPointDataList(List<T> units, Supplements<T> supplements, int offset, CollapseGroups collapseGroups) {
 		this.units = units;
 		this.offset = offset;
+		this.collapseGroups = collapseGroups;
 		if (supplements==null) {
 			this.supplements = emptySupplements();
 		} else {
@@ -127,7 +151,7 @@ public final class SplitPointDataList<T extends SplitPointUnit> implements Split
 	 * @throws IndexOutOfBoundsException if the index is beyond the end of the stream
 	 */
 	public SplitPointDataList<T> tail(int fromIndex) {
-		return new SplitPointDataList<T>(units, supplements, offset+fromIndex);
+		return new SplitPointDataList<T>(units, supplements, offset+fromIndex, collapseGroups);
 	}
 	
 	@Override
@@ -150,4 +174,24 @@ public final class SplitPointDataList<T extends SplitPointUnit> implements Split
 		return this;
 	}
 
+	/**
+	 * Gets the list of units that this instance is a window into.
+	 * @return returns the list of units, including units before the offset
+	 */
+	List<T> getUnits() {
+		return units;
+	}
+
+	int getOffset() {
+		return offset;
+	}
+
+	/**
+	 * Gets the collapse groups of the list of units.
+	 * @return returns the collapse groups, or null if the groups have not been found in advance
+	 */
+	CollapseGroups getCollapseGroups() {
+		return collapseGroups;
+	}
+
 }
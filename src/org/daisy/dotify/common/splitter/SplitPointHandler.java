@@ -1,16 +1,29 @@
 package org.daisy.dotify.common.splitter;
 
+import java.util.BitSet;
 import java.util.Collections;
-import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import org.daisy.dotify.common.collection.SplitList;
 import org.daisy.dotify.common.splitter.SplitPointSpecification.Type;
 
 
 /**
- * Breaks units into results. All allowed break points are supplied with the input.
+ * <p>Breaks units into results. All allowed break points are supplied with the input.</p>
+ * 
+ * <p>Instances of this class are thread safe. A handler with the default configuration has
+ * no state and can be shared, see {@link #getShared()}. Scratch buffers used while splitting
+ * are kept per thread and reused from one call to the next. A configured
+ * {@link SplitterListener} is called from every thread that uses the handler, so it must
+ * itself be thread safe, as {@link SplitterMetricsAggregator} is.</p>
  * 
  * @author Joel Håkansson
  *
@@ -18,15 +31,180 @@ import org.daisy.dotify.common.splitter.SplitPointSpecification.Type;
  * @param <U> the type of data source
  */
 public class SplitPointHandler<T extends SplitPointUnit, U extends SplitPointDataSource<T, U>> {
-	private final List<T> EMPTY_LIST = Collections.emptyList();
-	private final SplitPointCost<T> defaultCost = new SplitPointCost<T>() {
+	static final int LIMIT_EMPTY = -1;
+	static final int LIMIT_NONE = -2;
+	static final int LIMIT_ALL = -3;
+	@SuppressWarnings("rawtypes")
+	private static final DefaultCost DEFAULT_COST = new DefaultCost();
+	@SuppressWarnings("rawtypes")
+	private static final SplitPointHandler SHARED = new SplitPointHandler();
+	private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+	
+	private static class DefaultCost<T extends SplitPointUnit> implements BoundedSplitPointCost<T> {
 		@Override
 		public double getCost(SplitPointDataSource<T, ?> data, int index, int breakpoint) {
 			// 1. the smaller the result, the higher the cost
 			// 2. breakable units are always preferred over forced ones
 			return (data.get(index).isBreakable()?1:2)*breakpoint-index;
 		}
-	};
+
+		@Override
+		public double getMinimumCost(SplitPointDataSource<T, ?> data, int index, int breakpoint) {
+			// the cost of a breakable unit at index
+			return breakpoint-index;
+		}
+	}
+	/**
+	 * Provides scratch buffers for a thread.
+	 */
+	private static class Scratch {
+		private SizeStep<?> step = null;
+		private boolean inUse = false;
+	}
+
+	private final Map<CacheKey, SplitPointSpecification> cache;
+	private long cacheHits = 0;
+	private long cacheMisses = 0;
+	private final SplitterListener listener;
+
+	/**
+	 * Provides a builder for split point handlers.
+	 *
+	 * @param <T> the type of split point units
+	 * @param <U> the type of data source
+	 */
+	public static class Builder<T extends SplitPointUnit, U extends SplitPointDataSource<T, U>> {
+		private int cacheSize = 0;
+		private SplitterListener listener = null;
+
+		/**
+		 * Creates a new builder.
+		 */
+		public Builder() {
+			super();
+		}
+
+		/**
+		 * <p>Sets the maximum number of results to keep in the cache. When the limit
+		 * is reached, the least recently used result is removed. The default is 0,
+		 * which disables the cache.</p>
+		 * 
+		 * <p>Results are cached for {@link SplitPointDataList}, {@link IndexedSplitPointDataList}
+		 * and {@link ColumnarSplitPointDataList}. A result is reused if the data is a window
+		 * into the same list of units (by identity), with the same offset and supplements (by identity),
+		 * and if the break point, the cost (by identity) and the options are the same.
+		 * Therefore, the units and supplements must not change while the handler is in use.</p>
+		 * 
+		 * @param value the cache size
+		 * @return returns this builder
+		 * @throws IllegalArgumentException if the value is negative
+		 */
+		public Builder<T, U> cacheSize(int value) {
+			if (value<0) {
+				throw new IllegalArgumentException("Negative value not allowed: " + value);
+			}
+			this.cacheSize = value;
+			return this;
+		}
+
+		/**
+		 * Sets a listener that receives the metrics of each split point search. The default
+		 * is null, in which case no metrics are collected.
+		 * @param value the listener, or null
+		 * @return returns this builder
+		 */
+		public Builder<T, U> listener(SplitterListener value) {
+			this.listener = value;
+			return this;
+		}
+
+		/**
+		 * Creates a new split point handler with the current configuration.
+		 * @return returns a new split point handler
+		 */
+		public SplitPointHandler<T, U> build() {
+			return new SplitPointHandler<>(this);
+		}
+	}
+
+	/**
+	 * Creates a new split point handler without a cache and without a listener.
+	 */
+	public SplitPointHandler() {
+		this(new Builder<T, U>());
+	}
+
+	/**
+	 * Gets a shared split point handler without a cache and without a listener.
+	 * The handler can be used by several threads at the same time.
+	 * @param <T> the type of split point units
+	 * @param <U> the type of data source
+	 * @return returns the shared split point handler
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T extends SplitPointUnit, U extends SplitPointDataSource<T, U>> SplitPointHandler<T, U> getShared() {
+		return SHARED;
+	}
+
+	/**
+	 * Gets the default cost.
+	 * @param <T> the type of split point units
+	 * @return returns the default cost
+	 */
+	@SuppressWarnings("unchecked")
+	static <T extends SplitPointUnit> SplitPointCost<T> defaultCost() {
+		return DEFAULT_COST;
+	}
+
+	/**
+	 * Gets the scratch size step of the current thread. The step must be released
+	 * using {@link #releaseStep(SizeStep)} when it is no longer used. If the scratch
+	 * step is already in use, for example by a cost function that splits data, a new step
+	 * is returned.
+	 * @param breakPoint the break point
+	 * @param map the supplements
+	 * @param useLastUnitSize true if the last unit size should be used for the last unit
+	 * @return returns a size step
+	 */
+	@SuppressWarnings("unchecked")
+	private static <T extends SplitPointUnit> SizeStep<T> acquireStep(float breakPoint, Supplements<T> map, boolean useLastUnitSize) {
+		Scratch scratch = SCRATCH.get();
+		if (scratch.inUse) {
+			return new SizeStep<>(breakPoint, map, useLastUnitSize);
+		}
+		scratch.inUse = true;
+		if (scratch.step==null) {
+			scratch.step = new SizeStep<>(breakPoint, map, useLastUnitSize);
+		} else {
+			((SizeStep<T>)scratch.step).reset(breakPoint, map, useLastUnitSize);
+		}
+		return (SizeStep<T>)scratch.step;
+	}
+
+	private static void releaseStep(SizeStep<?> step) {
+		Scratch scratch = SCRATCH.get();
+		if (scratch.step==step) {
+			// don't keep a reference to the supplements
+			step.reset(0, null, true);
+			scratch.inUse = false;
+		}
+	}
+
+	private SplitPointHandler(Builder<T, U> builder) {
+		if (builder.cacheSize>0) {
+			int maxSize = builder.cacheSize;
+			this.cache = new LinkedHashMap<CacheKey, SplitPointSpecification>(16, 0.75f, true) {
+				private static final long serialVersionUID = 1L;
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<CacheKey, SplitPointSpecification> eldest) {
+					return size()>maxSize;
+				}
+			};
+		} else {
+			this.cache = null;
+		}
+		this.listener = builder.listener;
+	}
 	
 	/**
 	 * Splits the data at, or before, the supplied breakPoint according to the rules
@@ -38,8 +216,8 @@ public class SplitPointHandler<T extends SplitPointUnit, U extends SplitPointDat
 	 */
 	@SafeVarargs
 	public static <T extends SplitPointUnit> SplitPoint<T, SplitPointDataList<T>> split(float breakPoint, T ... units) {
-		SplitPointHandler<T, SplitPointDataList<T>> splitter = new SplitPointHandler<>();
-		return splitter.split(breakPoint, new SplitPointDataList<T>(units), splitter.defaultCost);
+		SplitPointHandler<T, SplitPointDataList<T>> splitter = getShared();
+		return splitter.split(breakPoint, new SplitPointDataList<T>(units), defaultCost());
 	}
 
 	/**
@@ -52,8 +230,8 @@ public class SplitPointHandler<T extends SplitPointUnit, U extends SplitPointDat
 	 * @return returns a split point result
 	 */
 	public static <T extends SplitPointUnit> SplitPoint<T, SplitPointDataList<T>> split(float breakPoint, List<T> units, SplitOption ... options) {
-		SplitPointHandler<T, SplitPointDataList<T>> splitter = new SplitPointHandler<>();
-		return splitter.split(breakPoint, new SplitPointDataList<T>(units), splitter.defaultCost, options);
+		SplitPointHandler<T, SplitPointDataList<T>> splitter = getShared();
+		return splitter.split(breakPoint, new SplitPointDataList<T>(units), defaultCost(), options);
 	}
 	
 	/**
@@ -68,10 +246,76 @@ public class SplitPointHandler<T extends SplitPointUnit, U extends SplitPointDat
 	 * @return returns a split point result
 	 */
 	public static <T extends SplitPointUnit> SplitPoint<T, SplitPointDataList<T>> split(float breakPoint, List<T> units, SplitPointCost<T> cost, SplitOption ... options) {
-		SplitPointHandler<T, SplitPointDataList<T>> splitter = new SplitPointHandler<>();
+		SplitPointHandler<T, SplitPointDataList<T>> splitter = getShared();
 		return splitter.split(breakPoint, new SplitPointDataList<T>(units), cost, options);
 	}
 
+	/**
+	 * Splits the units described by the arrays at, or before, the supplied breakPoint.
+	 * This is the same as {@link #split(float, float[], float[], BitSet, BitSet, int, SplitOption...)}
+	 * where the last unit size is the same as the unit size.
+	 * 
+	 * @param breakPoint the split point
+	 * @param sizes the unit sizes
+	 * @param breakable the breakable units
+	 * @param skippable the skippable units
+	 * @param fromIndex the index of the first unit to split
+	 * @param options the split options
+	 * @return returns a split point result
+	 * @throws IndexOutOfBoundsException if fromIndex is negative or greater than the number of units
+	 */
+	public static SplitPointRange split(float breakPoint, float[] sizes, BitSet breakable, BitSet skippable, int fromIndex, SplitOption ... options) {
+		return split(breakPoint, sizes, sizes, breakable, skippable, fromIndex, options);
+	}
+
+	/**
+	 * <p>Splits the units described by the arrays at, or before, the supplied breakPoint
+	 * according to the rules in the data. If force is used, rules may be broken to achieve a result.
+	 * The result is the same as when splitting units with these properties, none of which are
+	 * collapsible or have supplements, but no unit objects are needed.</p>
+	 * 
+	 * <p>To split the remaining units, call this method again with the tail start of the
+	 * result as fromIndex. The arrays are not copied and must not change while in use.</p>
+	 * 
+	 * @param breakPoint the split point
+	 * @param sizes the unit sizes
+	 * @param lastSizes the unit sizes to use if the unit is the last unit
+	 * @param breakable the breakable units
+	 * @param skippable the skippable units
+	 * @param fromIndex the index of the first unit to split
+	 * @param options the split options
+	 * @return returns a split point result
+	 * @throws IllegalArgumentException if the size arrays have different lengths
+	 * @throws IndexOutOfBoundsException if fromIndex is negative or greater than the number of units
+	 */
+	public static SplitPointRange split(float breakPoint, float[] sizes, float[] lastSizes, BitSet breakable, BitSet skippable, int fromIndex, SplitOption ... options) {
+		if (sizes.length!=lastSizes.length) {
+			throw new IllegalArgumentException("Array lengths differ: " + sizes.length + "/" + lastSizes.length);
+		}
+		if (fromIndex<0 || fromIndex>sizes.length) {
+			throw new IndexOutOfBoundsException("Index out of bounds: " + fromIndex);
+		}
+		ColumnarSplitPointDataList<SplitPointUnit> data = new ColumnarSplitPointDataList<>(
+				new SplitPointColumns<>(sizes, lastSizes, breakable, skippable, ColumnarSplitPointDataList.emptySupplements()), fromIndex);
+		SplitPointHandler<SplitPointUnit, ColumnarSplitPointDataList<SplitPointUnit>> splitter = getShared();
+		SplitPointSpecification spec = splitter.find(breakPoint, data, defaultCost(), SplitOptions.parse(options), null, false);
+		switch (spec.getType()) {
+			case EMPTY: case NONE:
+				return new SplitPointRange(fromIndex, fromIndex, fromIndex, false);
+			case ALL:
+				return new SplitPointRange(fromIndex, sizes.length, sizes.length, false);
+			default:
+				int tailStart = fromIndex+spec.getIndex();
+				int headEnd = tailStart;
+				if (spec.shouldTrimTrailing()) {
+					while (headEnd>fromIndex && skippable.get(headEnd-1)) {
+						headEnd--;
+					}
+				}
+				return new SplitPointRange(fromIndex, headEnd, tailStart, spec.isHard());
+		}
+	}
+
 	/**
 	 * Splits the data at, or before, the supplied breakPoint according to the rules
 	 * in the data. If force is used, rules may be broken to achieve a result.
@@ -82,7 +326,7 @@ public class SplitPointHandler<T extends SplitPointUnit, U extends SplitPointDat
 	 * @return returns a split point result
 	 */
 	public SplitPoint<T, U> split(float breakPoint, U data, SplitOption ... options) {
-		return split(breakPoint, data, defaultCost, options);
+		return split(breakPoint, data, defaultCost(), options);
 	}
 
 	/**
@@ -98,25 +342,109 @@ public class SplitPointHandler<T extends SplitPointUnit, U extends SplitPointDat
 	 * @throws IllegalArgumentException if cost is null
 	 */
 	public SplitPoint<T, U> split(float breakPoint, U data, SplitPointCost<T> cost, SplitOption ... options) {
-		SplitPointSpecification spec = find(breakPoint, data, cost, options);
+		SplitOptions opts = SplitOptions.parse(options);
 		if (cost==null) {
 			throw new IllegalArgumentException("Null cost not allowed.");
 		}
-		if (spec.getType()==Type.EMPTY) {
-			// pretty simple...
-			return new SplitPoint<>(EMPTY_LIST, EMPTY_LIST, data.createEmpty(), EMPTY_LIST, false);
-		} else if (spec.getType()==Type.NONE) {
-			return emptyHead(data);
-		} else if (spec.getType()==Type.ALL) {
-			return finalizeBreakpoint(new SplitList<>(data.getRemaining(), EMPTY_LIST), data.createEmpty(), data.getSupplements(), false);
-		} else {
-			return makeBreakpoint(data, spec);
+		SizeStep<T> step = acquireStep(breakPoint, data.getSupplements(), opts.useLastUnitSize);
+		try {
+			SplitPointSpecification spec = find(breakPoint, data, cost, opts, step, true);
+			return split(spec, data, step.getTracker());
+		} finally {
+			releaseStep(step);
+		}
+	}
+
+	/**
+	 * <p>Splits the data into pages, one page for each break point. The pages are
+	 * created lazily, as the stream is consumed, and each page is split from the tail
+	 * of the previous page. Internal buffers are reused from one page to the next,
+	 * which makes this method more efficient than calling
+	 * {@link #split(float, SplitPointDataSource, SplitPointCost, SplitOption...)} repeatedly.</p>
+	 * 
+	 * <p>The stream ends when the data has been consumed, when there are no more
+	 * break points, or after a page that did not consume any data (for example because
+	 * the first unit does not fit).</p>
+	 * 
+	 * @param breakPoints the break points, one for each page
+	 * @param data the data to split
+	 * @param options the split options
+	 * @return returns a stream of split point results
+	 */
+	public Stream<SplitPoint<T, U>> splitAll(Iterator<Float> breakPoints, U data, SplitOption ... options) {
+		return splitAll(breakPoints, data, defaultCost(), options);
+	}
+
+	/**
+	 * <p>Splits the data into pages, one page for each break point. The pages are
+	 * created lazily, as the stream is consumed, and each page is split from the tail
+	 * of the previous page. Internal buffers are reused from one page to the next,
+	 * which makes this method more efficient than calling
+	 * {@link #split(float, SplitPointDataSource, SplitPointCost, SplitOption...)} repeatedly.</p>
+	 * 
+	 * <p>The stream ends when the data has been consumed, when there are no more
+	 * break points, or after a page that did not consume any data (for example because
+	 * the first unit does not fit).</p>
+	 * 
+	 * @param breakPoints the break points, one for each page
+	 * @param data the data to split
+	 * @param cost the cost function used when determining the optimal <i>forced</i> split point. In other words,
+	 * 		 the cost function is only used if there are no breakable units available.
+	 * @param options the split options
+	 * @return returns a stream of split point results
+	 * @throws IllegalArgumentException if cost is null
+	 */
+	public Stream<SplitPoint<T, U>> splitAll(Iterator<Float> breakPoints, U data, SplitPointCost<T> cost, SplitOption ... options) {
+		if (cost==null) {
+			throw new IllegalArgumentException("Null cost not allowed.");
+		}
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(
+				new PageIterator(breakPoints, data, cost, SplitOptions.parse(options)),
+				Spliterator.ORDERED | Spliterator.NONNULL), false);
+	}
+
+	private class PageIterator implements Iterator<SplitPoint<T, U>> {
+		private final Iterator<Float> breakPoints;
+		private final SplitPointCost<T> cost;
+		private final SplitOptions opts;
+		private final SizeStep<T> step;
+		private U data;
+		private boolean done;
+
+		private PageIterator(Iterator<Float> breakPoints, U data, SplitPointCost<T> cost, SplitOptions opts) {
+			this.breakPoints = breakPoints;
+			this.cost = cost;
+			this.opts = opts;
+			this.step = new SizeStep<>(0, data.getSupplements(), opts.useLastUnitSize);
+			this.data = data;
+			this.done = false;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return !done && !data.isEmpty() && breakPoints.hasNext();
+		}
+
+		@Override
+		public SplitPoint<T, U> next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			SplitPointSpecification spec = find(breakPoints.next(), data, cost, opts, step, true);
+			SplitPoint<T, U> ret = split(spec, data, step.getTracker());
+			// stop if no progress was made, or the same page would be repeated forever
+			done = ret.getHead().isEmpty() && ret.getDiscarded().isEmpty();
+			data = ret.getTail();
+			return ret;
 		}
 	}
 	
 	/**
 	 * <p>Splits the data according to the supplied specification. A specification can be created by using 
 	 * {@link #find(float, SplitPointDataSource, SplitPointCost, SplitOption...)} on the data source.</p>
+	 * <p>If the specification was created with
+	 * {@link #find(float, SplitPointDataSource, SplitPointCost, boolean, SplitOption...)} keeping
+	 * the state, the head is created from that state instead of stepping through the units again.</p>
 	 * <p>No data is beyond the specified split point is produced using this method.
 	 * Also, only one of the data producing operations is called, either
 	 * {@link SplitPointDataSource#getRemaining()} or {@link SplitPointDataSource#split(int)}.</p>
@@ -126,15 +454,31 @@ public class SplitPointHandler<T extends SplitPointUnit, U extends SplitPointDat
 	 * @return returns a split point result
 	 */
 	public SplitPoint<T, U> split(SplitPointSpecification spec, U data) {
+		SizeStep<T> step = acquireStep(0, data.getSupplements(), true);
+		try {
+			return split(spec, data, step.getTracker());
+		} finally {
+			releaseStep(step);
+		}
+	}
+
+	/**
+	 * Splits the data according to the supplied specification.
+	 * @param spec the specification
+	 * @param data the data
+	 * @param tracker a supplement tracker to reuse
+	 * @return returns a split point result
+	 */
+	SplitPoint<T, U> split(SplitPointSpecification spec, U data, SupplementTracker<T> tracker) {
 		if (spec.getType()==Type.EMPTY) {
 			// pretty simple...
-			return new SplitPoint<>(EMPTY_LIST, EMPTY_LIST, data.createEmpty(), EMPTY_LIST, false);
+			return new SplitPoint<>(Collections.emptyList(), Collections.emptyList(), data.createEmpty(), Collections.emptyList(), false);
 		} else if (spec.getType()==Type.NONE) {
-			return emptyHead(data);
+			return emptyHead(data, tracker);
 		} else if (spec.getType()==Type.ALL) {
-			return finalizeBreakpoint(new SplitList<>(data.getRemaining(), EMPTY_LIST), data.createEmpty(), data.getSupplements(), false);
+			return finalizeBreakpoint(new SplitList<>(data.getRemaining(), Collections.emptyList()), data.createEmpty(), data.getSupplements(), false, tracker);
 		} else {
-			return makeBreakpoint(data, spec);
+			return makeBreakpoint(data, spec, tracker);
 		}
 	}
 
@@ -148,7 +492,7 @@ public class SplitPointHandler<T extends SplitPointUnit, U extends SplitPointDat
 	 * @return returns a split point specification
 	 */
 	public SplitPointSpecification find(float breakPoint, U data, SplitOption ... options) {
-		return find(breakPoint, data, defaultCost, options);
+		return find(breakPoint, data, defaultCost(), options);
 	}
 
 	/**
@@ -163,30 +507,313 @@ public class SplitPointHandler<T extends SplitPointUnit, U extends SplitPointDat
 	 * @return returns a split point specification
 	 */
 	public SplitPointSpecification find(float breakPoint, U data, SplitPointCost<T> cost, SplitOption ... options) {
+		return find(breakPoint, data, cost, false, options);
+	}
+
+	/**
+	 * <p>Finds a split point at, or before, the supplied breakPoint according to the rules
+	 * in the data. If force is used, rules may be broken to achieve a result.</p>
+	 * <p>If the state is kept, the specification holds the units found before the split point
+	 * and a reference to the data. A call to {@link #split(SplitPointSpecification, SplitPointDataSource)}
+	 * with the same data can then create the head without stepping through the units again.
+	 * The specification should therefore not be kept longer than needed.</p>
+	 * 
+	 * @param breakPoint the split point
+	 * @param data the data to split
+	 * @param cost the cost function used when determining the optimal <i>forced</i> split point. In other words,
+	 * 		 the cost function is only used if there are no breakable units available.
+	 * @param keepState true if the specification should keep the state of the search, false otherwise
+	 * @param options the split options
+	 * @return returns a split point specification
+	 */
+	public SplitPointSpecification find(float breakPoint, U data, SplitPointCost<T> cost, boolean keepState, SplitOption ... options) {
 		SplitOptions opts = SplitOptions.parse(options);
 		if (cost==null) {
 			throw new IllegalArgumentException("Null cost not allowed.");
 		}
+		SizeStep<T> step = acquireStep(breakPoint, data.getSupplements(), opts.useLastUnitSize);
+		try {
+			return find(breakPoint, data, cost, opts, step, keepState);
+		} finally {
+			releaseStep(step);
+		}
+	}
+
+	/**
+	 * Finds a split point at, or before, the supplied breakPoint.
+	 * @param breakPoint the split point
+	 * @param data the data to split
+	 * @param cost the cost
+	 * @param opts the split options
+	 * @param step a size step to reuse, or null
+	 * @param record true if the units should be recorded for a split that follows immediately,
+	 * 		false if the specification is returned to the caller. A recording holds the units
+	 * 		and a reference to the data, so it is only made when the data is split right away.
+	 * @return returns a split point specification
+	 */
+	SplitPointSpecification find(float breakPoint, U data, SplitPointCost<T> cost, SplitOptions opts, SizeStep<T> step, boolean record) {
+		if (listener==null) {
+			return findCached(breakPoint, data, cost, opts, step, record);
+		}
+		long start = System.nanoTime();
+		SplitterMetrics metrics = new SplitterMetrics();
+		metrics.input(breakPoint, opts, data);
+		if (step==null) {
+			step = new SizeStep<>(breakPoint, data.getSupplements(), opts.useLastUnitSize);
+		}
+		// the metrics are passed along with the supplement tracker
+		step.getTracker().setMetrics(metrics);
+		SplitPointSpecification ret;
+		try {
+			ret = findCached(breakPoint, data, cost, opts, step, record);
+		} finally {
+			step.getTracker().setMetrics(null);
+		}
+		metrics.done(ret.getType(), System.nanoTime()-start);
+		listener.splitPointFound(metrics);
+		return ret;
+	}
+
+	private SplitPointSpecification findCached(float breakPoint, U data, SplitPointCost<T> cost, SplitOptions opts, SizeStep<T> step, boolean record) {
+		CacheKey key = cache!=null?CacheKey.of(data, breakPoint, cost, opts):null;
+		if (key==null) {
+			return findUncached(breakPoint, data, cost, opts, step, record);
+		}
+		synchronized (cache) {
+			SplitPointSpecification ret = cache.get(key);
+			if (ret!=null) {
+				cacheHits++;
+				if (step!=null && step.getTracker().getMetrics()!=null) {
+					step.getTracker().getMetrics().cacheHit();
+				}
+				return ret;
+			}
+			cacheMisses++;
+		}
+		SplitPointSpecification ret = findUncached(breakPoint, data, cost, opts, step, record);
+		synchronized (cache) {
+			// don't keep the recording in the cache
+			cache.put(key, ret.withoutRecording());
+		}
+		return ret;
+	}
+
+	/**
+	 * Gets the number of times that a result was found in the cache.
+	 * @return returns the number of cache hits, always 0 if the cache is disabled
+	 */
+	public long getCacheHits() {
+		if (cache==null) {
+			return 0;
+		}
+		synchronized (cache) {
+			return cacheHits;
+		}
+	}
+
+	/**
+	 * Gets the number of times that a result was not found in the cache.
+	 * @return returns the number of cache misses, always 0 if the cache is disabled
+	 */
+	public long getCacheMisses() {
+		if (cache==null) {
+			return 0;
+		}
+		synchronized (cache) {
+			return cacheMisses;
+		}
+	}
+
+	/**
+	 * Provides a key for cached results. Units, supplements and costs are compared by identity.
+	 */
+	private static final class CacheKey {
+		private final Object units;
+		private final Object supplements;
+		private final int offset;
+		private final int breakPoint;
+		private final Object cost;
+		private final int options;
+		private final int hash;
+
+		private CacheKey(Object units, Object supplements, int offset, float breakPoint, Object cost, SplitOptions opts) {
+			this.units = units;
+			this.supplements = supplements;
+			this.offset = offset;
+			this.breakPoint = Float.floatToIntBits(breakPoint);
+			this.cost = cost;
+			this.options = (opts.useForce?1:0) | (opts.trimTrailing?2:0) | (opts.useLastUnitSize?4:0);
+			int h = System.identityHashCode(units);
+			h = 31*h + System.identityHashCode(supplements);
+			h = 31*h + offset;
+			h = 31*h + this.breakPoint;
+			h = 31*h + System.identityHashCode(cost);
+			h = 31*h + options;
+			this.hash = h;
+		}
+
+		/**
+		 * Creates a key for the data, if possible.
+		 * @return returns a new key, or null if the data cannot be cached
+		 */
+		private static CacheKey of(SplitPointDataSource<?, ?> data, float breakPoint, Object cost, SplitOptions opts) {
+			if (data instanceof SplitPointDataList) {
+				SplitPointDataList<?> d = (SplitPointDataList<?>)data;
+				return new CacheKey(d.getUnits(), d.getSupplements(), d.getOffset(), breakPoint, cost, opts);
+			} else if (data instanceof IndexedSplitPointDataList) {
+				IndexedSplitPointDataList<?> d = (IndexedSplitPointDataList<?>)data;
+				return new CacheKey(d.getIndex(), d.getSupplements(), d.getOffset(), breakPoint, cost, opts);
+			} else if (data instanceof ColumnarSplitPointDataList) {
+				ColumnarSplitPointDataList<?> d = (ColumnarSplitPointDataList<?>)data;
+				return new CacheKey(d.getColumns(), d.getSupplements(), d.getOffset(), breakPoint, cost, opts);
+			} else {
+				return null;
+			}
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof CacheKey)) {
+				return false;
+			}
+			CacheKey other = (CacheKey) obj;
+			return units==other.units && supplements==other.supplements && offset==other.offset
+					&& breakPoint==other.breakPoint && cost==other.cost && options==other.options;
+		}
+	}
+
+	private SplitPointSpecification findUncached(float breakPoint, U data, SplitPointCost<T> cost, SplitOptions opts, SizeStep<T> step, boolean record) {
+		HeadRecording<T> recording = null;
+		if (record && !isSearchable(data) && !(data instanceof ColumnarSplitPointDataList)) {
+			// record the units while searching, so that the head can be created without stepping through them again
+			if (step==null) {
+				step = new SizeStep<>(breakPoint, data.getSupplements(), opts.useLastUnitSize);
+			}
+			recording = new HeadRecording<>(data);
+			step.record(recording);
+		}
+		int strPos;
+		try {
+			strPos = findLimit(breakPoint, data, opts.useLastUnitSize, step);
+		} finally {
+			if (recording!=null) {
+				step.record(null);
+			}
+		}
+		switch (strPos) {
+			case LIMIT_EMPTY:
+				// pretty simple...
+				return SplitPointSpecification.empty();
+			case LIMIT_NONE:
+				return SplitPointSpecification.none();
+			case LIMIT_ALL:
+				return SplitPointSpecification.all();
+			default:
+				SplitPointSpecification spec = findBreakpointFromPosition(data, strPos, opts.useForce, cost, opts.trimTrailing, step!=null?step.getTracker().getMetrics():null);
+				return recording==null?spec:new SplitPointSpecification(spec.getIndex(), spec.isHard(), spec.shouldTrimTrailing(), recording);
+		}
+	}
+
+	/**
+	 * Finds the position of the last unit to consider when searching for a split point
+	 * at, or before, the supplied breakPoint. This is the last unit that fits, or the
+	 * last of the skippable units following it.
+	 * 
+	 * @param breakPoint the split point
+	 * @param data the data to split
+	 * @param useLastUnitSize true if the last unit size should be used for the last unit
+	 * @return returns the position, or one of {@link #LIMIT_EMPTY}, {@link #LIMIT_NONE}
+	 * 		and {@link #LIMIT_ALL}
+	 */
+	int findLimit(float breakPoint, U data, boolean useLastUnitSize) {
+		return findLimit(breakPoint, data, useLastUnitSize, null);
+	}
+
+	/**
+	 * Finds the position of the last unit to consider when searching for a split point
+	 * at, or before, the supplied breakPoint.
+	 * 
+	 * @param breakPoint the split point
+	 * @param data the data to split
+	 * @param useLastUnitSize true if the last unit size should be used for the last unit
+	 * @param step a size step to reuse, or null
+	 * @return returns the position, or one of {@link #LIMIT_EMPTY}, {@link #LIMIT_NONE}
+	 * 		and {@link #LIMIT_ALL}
+	 */
+	private int findLimit(float breakPoint, U data, boolean useLastUnitSize, SizeStep<T> step) {
 		if (data.isEmpty()) {
-			// pretty simple...
-			return SplitPointSpecification.empty();
+			return LIMIT_EMPTY;
 		} else if (breakPoint<=0) {
-			return SplitPointSpecification.none();
-		} else if (fits(data, breakPoint, opts.useLastUnitSize)) {
-			return SplitPointSpecification.all();
+			return LIMIT_NONE;
+		}
+		int startPos;
+		if (isSearchable(data)) {
+			IndexedSplitPointDataList<?> indexed = (IndexedSplitPointDataList<?>)data;
+			if (indexed.fits(breakPoint, useLastUnitSize)) {
+				return LIMIT_ALL;
+			}
+			startPos = indexed.findOverflow(breakPoint, useLastUnitSize)-1;
+		} else if (data instanceof ColumnarSplitPointDataList) {
+			@SuppressWarnings("unchecked")
+			ColumnarSplitPointDataList<T> columnar = (ColumnarSplitPointDataList<T>)data;
+			SupplementTracker<T> tracker = step==null?new SupplementTracker<>(data.getSupplements()):step.getTracker();
+			if (columnar.fits(breakPoint, useLastUnitSize, tracker)) {
+				return LIMIT_ALL;
+			}
+			startPos = columnar.findCollapse(breakPoint, useLastUnitSize, tracker);
 		} else {
-			int startPos = findCollapse(data, new SizeStep<>(breakPoint, data.getSupplements(), opts.useLastUnitSize));
-			// If no units are returned here it's because even the first unit doesn't fit.
-			// Therefore, force will not help.
-			if (startPos<0) {
-				return SplitPointSpecification.none();
+			if (step==null) {
+				step = new SizeStep<>(breakPoint, data.getSupplements(), useLastUnitSize);
 			} else {
-				return findBreakpoint(data, opts.useForce, startPos, cost, opts.trimTrailing);
+				step.reset(breakPoint, data.getSupplements(), useLastUnitSize);
+			}
+			// The fit test is done in the same pass as the search for the last unit that fits
+			startPos = findCollapse(data, step);
+			if (!data.hasElementAt(startPos+1)) {
+				// all units were processed without overflowing
+				return LIMIT_ALL;
+			}
+			// The units overflow once collapsed. Without collapsing, the units are at least
+			// as large, unless the overflow is caused by a last unit size. Only then is the
+			// full fit test needed.
+			if ((step.getOverflowSize()<=breakPoint || !data.hasElementAt(startPos+2))
+					&& fits(data, breakPoint, useLastUnitSize, step.getTracker())) {
+				return LIMIT_ALL;
 			}
-		}		
+		}
+		// If no units are returned here it's because even the first unit doesn't fit.
+		// Therefore, force will not help.
+		if (startPos<0) {
+			return LIMIT_NONE;
+		}
+		int strPos = forwardSkippable(data, startPos);
+		// check next unit to see if it can be removed.
+		if (!data.hasElementAt(strPos+1)) { // last unit?
+			return LIMIT_ALL;
+		} else {
+			return strPos;
+		}
 	}
 	
-	private static class SplitOptions {
+	/**
+	 * Returns true if the data source has a size index that can be used
+	 * instead of stepping through the units.
+	 * @param data the data source
+	 * @return true if the data source can be searched, false otherwise
+	 */
+	static boolean isSearchable(SplitPointDataSource<?, ?> data) {
+		return data instanceof IndexedSplitPointDataList && ((IndexedSplitPointDataList<?>)data).isSearchable();
+	}
+
+	static class SplitOptions {
 		boolean useForce = false;
 		boolean trimTrailing = true;
 		boolean useLastUnitSize = true;
@@ -210,55 +837,62 @@ public class SplitPointHandler<T extends SplitPointUnit, U extends SplitPointDat
 		}
 	}
 	
-	private SplitPoint<T, U> emptyHead(U data) {
-		return finalizeBreakpoint(new SplitList<>(EMPTY_LIST, EMPTY_LIST), data, data.getSupplements(), false);
+	private SplitPoint<T, U> emptyHead(U data, SupplementTracker<T> tracker) {
+		return finalizeBreakpoint(new SplitList<>(Collections.emptyList(), Collections.emptyList()), data, data.getSupplements(), false, tracker);
 	}
 	
-	private SplitPointSpecification findBreakpoint(U data, boolean force, int startPos, SplitPointCost<T> cost, boolean trimTrailing) {
-		Supplements<T> map = data.getSupplements();
-		int strPos = forwardSkippable(data, startPos);
-		// check next unit to see if it can be removed.
-		if (!data.hasElementAt(strPos+1)) { // last unit?
-			return SplitPointSpecification.all();
-		} else {
-			return findBreakpointFromPosition(data, strPos, map, force, cost, trimTrailing);
-		}
-	}
-
-	private SplitPoint<T, U> makeBreakpoint(U data, SplitPointSpecification spec) {
+	private SplitPoint<T, U> makeBreakpoint(U data, SplitPointSpecification spec, SupplementTracker<T> tracker) {
 		Supplements<T> map = data.getSupplements();
 		SplitResult<T, U> split = data.split(spec.getIndex());
-		return finalizeBreakpointFull(split, map, spec.isHard(), spec.shouldTrimTrailing());
+		if (spec.getRecording()!=null) {
+			@SuppressWarnings("unchecked")
+			HeadRecording<T> recording = (HeadRecording<T>)spec.getRecording();
+			SplitList<T> head = spec.shouldTrimTrailing()?trimTrailing(split.head()):new SplitList<>(split.head(), Collections.emptyList());
+			int size = head.getFirstPart().size();
+			if (recording.covers(data, size)) {
+				List<T> discarded = recording.getDiscarded(size);
+				discarded.addAll(head.getSecondPart());
+				return new SplitPoint<>(recording.getUnits(size), recording.getSupplements(size), split.tail(), discarded, spec.isHard());
+			}
+		}
+		return finalizeBreakpointFull(split, map, spec.isHard(), spec.shouldTrimTrailing(), tracker);
 	}
 	
-	private SplitPointSpecification findBreakpointFromPosition(U data, int strPos, Supplements<T> map, boolean force, SplitPointCost<T> cost, boolean trimTrailing) {
+	SplitPointSpecification findBreakpointFromPosition(U data, int strPos, boolean force, SplitPointCost<T> cost, boolean trimTrailing) {
+		return findBreakpointFromPosition(data, strPos, force, cost, trimTrailing, null);
+	}
+
+	private SplitPointSpecification findBreakpointFromPosition(U data, int strPos, boolean force, SplitPointCost<T> cost, boolean trimTrailing, SplitterMetrics metrics) {
 		// back up
-		BreakPointScannerResult result=findBreakpointBefore(data, strPos, cost);
+		long result=findBreakpointBefore(data, strPos, cost, metrics);
+		int bestBreakable = bestBreakable(result);
+		int bestSplitPoint = bestSplitPoint(result);
 		boolean hard = false;
 		int tailStart;
-		if (result.bestBreakable!=result.bestSplitPoint) { // no breakable found, break hard 
+		if (bestBreakable!=bestSplitPoint) { // no breakable found, break hard 
 			if (force) {
 				hard = true;
-				tailStart = result.bestSplitPoint+1;
+				tailStart = bestSplitPoint+1;
 			} else {
 				tailStart = 0;
 			}
 		} else {
-			tailStart = result.bestBreakable+1;
+			tailStart = bestBreakable+1;
 		}
 		return new SplitPointSpecification(tailStart, hard, trimTrailing);
 	}
 
-	private SplitPoint<T, U> finalizeBreakpointFull(SplitResult<T, U> result, Supplements<T> map, boolean hard, boolean trimTrailing) {
+	private SplitPoint<T, U> finalizeBreakpointFull(SplitResult<T, U> result, Supplements<T> map, boolean hard, boolean trimTrailing, SupplementTracker<T> tracker) {
 		if (trimTrailing) {
-			return finalizeBreakpoint(trimTrailing(result.head()), result.tail(), map, hard);
+			return finalizeBreakpoint(trimTrailing(result.head()), result.tail(), map, hard, tracker);
 		} else {
-			return finalizeBreakpoint(new SplitList<>(result.head(), EMPTY_LIST), result.tail(), map, hard);
+			return finalizeBreakpoint(new SplitList<>(result.head(), Collections.emptyList()), result.tail(), map, hard, tracker);
 		}
 	}
 
-	private SplitPoint<T, U> finalizeBreakpoint(SplitList<T> head, U tail, Supplements<T> map, boolean hard) {
-		TrimStep<T> trimmed = new TrimStep<>(map);
+	private SplitPoint<T, U> finalizeBreakpoint(SplitList<T> head, U tail, Supplements<T> map, boolean hard, SupplementTracker<T> tracker) {
+		tracker.reset(map);
+		TrimStep<T> trimmed = new TrimStep<>(tracker);
 		findCollapse(new SplitPointDataList<T>(head.getFirstPart()), trimmed);
 		List<T> discarded = trimmed.getDiscarded();
 		discarded.addAll(head.getSecondPart());
@@ -351,13 +985,47 @@ public class SplitPointHandler<T extends SplitPointUnit, U extends SplitPointDat
 	 * @return returns the index for the last unit
 	 */
 	static <T extends SplitPointUnit, U extends SplitPointDataSource<T, U>> int findCollapse(U data, StepForward<T> impl) {
+		CollapseGroups groups = null;
+		int offset = 0;
+		if (data instanceof SplitPointDataList) {
+			groups = ((SplitPointDataList<?>)data).getCollapseGroups();
+			offset = ((SplitPointDataList<?>)data).getOffset();
+		}
 		int units = -1;
 		T maxCollapsable = null;
 		for (int i=0; data.hasElementAt(i); i++) {
 			T c = data.get(i);
 			units++;
 			if (c.isCollapsible()) {
-				if (maxCollapsable!=null) {
+				if (maxCollapsable==null && groups!=null && groups.isStart(offset+i)) {
+					// the units of this group have been compared in advance
+					int end = groups.getEnd(offset+i)-offset;
+					maxCollapsable = c;
+					impl.unitProcessed();
+					if (impl.overflows(maxCollapsable)) {
+						return units-1;
+					}
+					for (i++; i<end; i++) {
+						units++;
+						if (groups.getMax(offset+i)==offset+i) {
+							impl.addDiscarded(maxCollapsable);
+							maxCollapsable = data.get(i);
+						} else {
+							impl.addDiscarded(data.get(i));
+						}
+						impl.unitProcessed();
+						if (impl.overflows(maxCollapsable)) {
+							return units-1;
+						}
+					}
+					if (data.hasElementAt(end) && data.get(end).isCollapsible()) {
+						// the next unit starts a new group
+						impl.addUnit(maxCollapsable);
+						maxCollapsable = null;
+					}
+					i = end-1;
+					continue;
+				} else if (maxCollapsable!=null) {
 					if (maxCollapsable.collapsesWith(c)) {
 						if (maxSize(maxCollapsable, c)==c) {
 							//new one is now max, add the previous to collapsed
@@ -381,6 +1049,7 @@ public class SplitPointHandler<T extends SplitPointUnit, U extends SplitPointDat
 				}
 				impl.addUnit(c);
 			}
+			impl.unitProcessed();
 			if (impl.overflows(maxCollapsable)) { //time to exit
 				units--;
 				return units;
@@ -394,6 +1063,9 @@ public class SplitPointHandler<T extends SplitPointUnit, U extends SplitPointDat
 	}
 
 	static int forwardSkippable(SplitPointDataSource<? extends SplitPointUnit, ? extends SplitPointDataSource<?, ?>> data, final int pos) {
+		if (data instanceof ColumnarSplitPointDataList) {
+			return forwardSkippable((ColumnarSplitPointDataList<?>)data, pos);
+		}
 		SplitPointUnit c;
 		int ret = pos;
 		if (data.hasElementAt(ret) && !(c=data.get(ret)).isBreakable()) {
@@ -416,29 +1088,119 @@ public class SplitPointHandler<T extends SplitPointUnit, U extends SplitPointDat
 		}
 	}
 
-	static <T extends SplitPointUnit, U extends SplitPointDataSource<T, U>> BreakPointScannerResult findBreakpointBefore(U data, int strPos, SplitPointCost<T> cost) {
-		BreakPointScannerResult res = new BreakPointScannerResult();
-		res.bestBreakable = -1;
-		res.bestSplitPoint = strPos;
+	private static int forwardSkippable(ColumnarSplitPointDataList<?> data, final int pos) {
+		int ret = pos;
+		if (data.hasElementAt(ret) && !data.isBreakable(ret)) {
+			ret++;
+			while (data.hasElementAt(ret) && data.isSkippable(ret)) {
+				if (data.isBreakable(ret)) {
+					return ret;
+				} else {
+					ret++;
+				}
+			}
+			//have we passed last element?
+			if (!data.hasElementAt(ret)) {
+				return ret-1;
+			} else {
+				return pos;
+			}
+		} else {
+			return ret;
+		}
+	}
+
+	/**
+	 * Finds the best split point at, or before, strPos. The units are checked backwards,
+	 * starting at strPos. If the cost is a {@link BoundedSplitPointCost}, the search stops
+	 * when none of the remaining units can have a lower cost than the best units found so far.
+	 * If two units have the same cost, the unit with the lowest index is used.
+	 * 
+	 * @param data the data
+	 * @param strPos the index of the last unit to consider
+	 * @param cost the cost
+	 * @return returns the best breakable unit and the best unit, use {@link #bestBreakable(long)}
+	 * 		and {@link #bestSplitPoint(long)} to get the indices
+	 */
+	static <T extends SplitPointUnit, U extends SplitPointDataSource<T, U>> long findBreakpointBefore(U data, int strPos, SplitPointCost<T> cost) {
+		return findBreakpointBefore(data, strPos, cost, null);
+	}
+
+	/**
+	 * Finds the best split point at, or before, strPos.
+	 * 
+	 * @param data the data
+	 * @param strPos the index of the last unit to consider
+	 * @param cost the cost
+	 * @param metrics the metrics to update, or null
+	 * @return returns the best breakable unit and the best unit
+	 * @see #findBreakpointBefore(SplitPointDataSource, int, SplitPointCost)
+	 */
+	@SuppressWarnings("unchecked")
+	private static <T extends SplitPointUnit, U extends SplitPointDataSource<T, U>> long findBreakpointBefore(U data, int strPos, SplitPointCost<T> cost, SplitterMetrics metrics) {
+		ColumnarSplitPointDataList<?> columnar = data instanceof ColumnarSplitPointDataList?(ColumnarSplitPointDataList<?>)data:null;
+		if (cost instanceof DefaultCost) {
+			// The last breakable unit has the lowest cost of all units. If there are
+			// no breakable units, the last unit has the lowest cost.
+			if (columnar!=null) {
+				int index = columnar.previousBreakable(strPos);
+				return scannerResult(index, index<0?strPos:index);
+			}
+			for (int index=strPos; index>=0; index--) {
+				if (data.get(index).isBreakable()) {
+					return scannerResult(index, index);
+				}
+			}
+			return scannerResult(-1, strPos);
+		}
+		BoundedSplitPointCost<T> bounded = cost instanceof BoundedSplitPointCost?(BoundedSplitPointCost<T>)cost:null;
+		int bestBreakable = -1;
+		int bestSplitPoint = strPos;
 		double currentCost = Double.MAX_VALUE;
 		double currentBreakableCost = Double.MAX_VALUE;
-		for (int index=0; index<=strPos; index++) {
+		int calls = 0;
+		for (int index=strPos; index>=0; index--) {
+			if (bounded!=null && index<strPos) {
+				double min = bounded.getMinimumCost(data, index, strPos);
+				if (min>currentCost && min>currentBreakableCost) {
+					break;
+				}
+			}
 			double c = cost.getCost(data, index, strPos);
-			if (c<currentCost) { // this should always be true for the first unit
-				res.bestSplitPoint = index;
+			calls++;
+			// a lower index wins if the cost is the same
+			if (c<=currentCost) {
+				bestSplitPoint = index;
 				currentCost = c;
 			}
-			if (c<currentBreakableCost && data.get(index).isBreakable()) {
-				res.bestBreakable = index;
+			if (c<=currentBreakableCost && (columnar!=null?columnar.isBreakable(index):data.get(index).isBreakable())) {
+				bestBreakable = index;
 				currentBreakableCost = c;
 			}
 		}
-		return res;
+		if (metrics!=null) {
+			metrics.addCostCalls(calls);
+		}
+		// Units with a cost of Double.MAX_VALUE (or higher) are never selected 
+		if (currentCost==Double.MAX_VALUE) {
+			bestSplitPoint = strPos;
+		}
+		if (currentBreakableCost==Double.MAX_VALUE) {
+			bestBreakable = -1;
+		}
+		return scannerResult(bestBreakable, bestSplitPoint);
 	}
-	
-	private static class BreakPointScannerResult {
-		int bestBreakable;
-		int bestSplitPoint;
+
+	private static long scannerResult(int bestBreakable, int bestSplitPoint) {
+		return ((long)bestBreakable<<32) | (bestSplitPoint & 0xFFFFFFFFL);
+	}
+
+	static int bestBreakable(long result) {
+		return (int)(result>>32);
+	}
+
+	static int bestSplitPoint(long result) {
+		return (int)result;
 	}
 	
 	/**
@@ -451,6 +1213,11 @@ public class SplitPointHandler<T extends SplitPointUnit, U extends SplitPointDat
 	static <T extends SplitPointUnit, U extends SplitPointDataSource<T, U>> boolean fits(U data, float limit, boolean useLastUnitSize) {
 		return totalSize(data, limit, useLastUnitSize)<=limit;
 	}
+
+	private static <T extends SplitPointUnit, U extends SplitPointDataSource<T, U>> boolean fits(U data, float limit, boolean useLastUnitSize, SupplementTracker<T> tracker) {
+		return totalSize(data, limit, useLastUnitSize, tracker)<=limit;
+	}
+
 	/**
 	 * If the total size is less than the limit, the size is returned, otherwise a value greater
 	 * than or equal to the limit is returned.
@@ -460,28 +1227,17 @@ public class SplitPointHandler<T extends SplitPointUnit, U extends SplitPointDat
 	 * @return returns the size 
 	 */
 	static <T extends SplitPointUnit, U extends SplitPointDataSource<T, U>> float totalSize(U data, float limit, boolean useLastUnitSize) {
+		return totalSize(data, limit, useLastUnitSize, new SupplementTracker<>(data.getSupplements()));
+	}
+
+	private static <T extends SplitPointUnit, U extends SplitPointDataSource<T, U>> float totalSize(U data, float limit, boolean useLastUnitSize, SupplementTracker<T> tracker) {
 		float ret = 0;
-		Set<String> ids = new HashSet<>();
-		Supplements<T> map = data.getSupplements();
-		boolean hasSupplements = false;
+		tracker.reset(data.getSupplements());
+		int i;
 		// we check up to the limit and beyond by one element, to make sure that we check enough units
-		for (int i=0; data.hasElementAt(i) && ret<=limit; i++) {
+		for (i=0; data.hasElementAt(i) && ret<=limit; i++) {
 			T unit = data.get(i);
-			List<String> suppIds = unit.getSupplementaryIDs();
-			if (suppIds!=null) {
-				for (String id : suppIds) {
-					if (ids.add(id)) { //id didn't already exist in the list
-						T item = map.get(id);
-						if (item!=null) {
-							if (!hasSupplements) {
-								hasSupplements = true;
-								ret += map.getOverhead();
-							}
-							ret += item.getUnitSize();
-						}
-					}
-				}
-			}
+			ret = tracker.add(unit, ret);
 			//last unit?
 			if (useLastUnitSize && !data.hasElementAt(i+1)) {
 				ret += unit.getLastUnitSize();
@@ -489,6 +1245,10 @@ public class SplitPointHandler<T extends SplitPointUnit, U extends SplitPointDat
 				ret += unit.getUnitSize();
 			}
 		}
+		SplitterMetrics metrics = tracker.getMetrics();
+		if (metrics!=null) {
+			metrics.addSizeUnits(i);
+		}
 		return ret;
 	}
 
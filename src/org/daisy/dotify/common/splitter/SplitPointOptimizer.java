@@ -0,0 +1,235 @@
+package org.daisy.dotify.common.splitter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>Finds the split points for a whole sequence of pages at once. Unlike
+ * {@link SplitPointHandler}, which selects one split point at a time, this
+ * class minimizes the total cost of all pages, in the spirit of the Knuth-Plass
+ * line breaking algorithm. In other words, a page can be made shorter than
+ * necessary if that improves the following pages.</p>
+ *
+ * <p>The search proceeds page by page. For each page and start position,
+ * the split point found by {@link SplitPointHandler#find(float, SplitPointDataSource, SplitOption...)}
+ * is considered, together with a limited number of breakable units before it
+ * (the lookahead). Start positions reached by several paths are merged and only
+ * the least expensive positions are kept for each page (the beam width). As a result,
+ * the running time is proportional to the number of pages times the beam width
+ * times the lookahead.</p>
+ *
+ * <p>The cost function is called once for each candidate page, with the index of
+ * the last unit of the candidate and, as the limit, the index of the last unit that
+ * fits on the page. This is the same limit as the one used by {@link SplitPointHandler}.
+ * The cost of the last page is always zero. By default, the cost of a page is the
+ * square of the difference between those indices.</p>
+ *
+ * @author Joel Håkansson
+ *
+ * @param <T> the type of split point units
+ * @param <U> the type of data source
+ */
+public class SplitPointOptimizer<T extends SplitPointUnit, U extends SplitPointDataSource<T, U>> {
+	private final SplitPointHandler<T, U> handler;
+	private final int lookahead;
+	private final int beamWidth;
+
+	/**
+	 * Provides a builder for split point optimizers.
+	 *
+	 * @param <T> the type of split point units
+	 * @param <U> the type of data source
+	 */
+	public static class Builder<T extends SplitPointUnit, U extends SplitPointDataSource<T, U>> {
+		private SplitPointHandler<T, U> handler = new SplitPointHandler<>();
+		private int lookahead = 4;
+		private int beamWidth = 16;
+
+		/**
+		 * Creates a new builder.
+		 */
+		public Builder() {
+			super();
+		}
+
+		/**
+		 * Sets the split point handler used to find the longest possible page.
+		 * @param value the handler
+		 * @return returns this builder
+		 */
+		public Builder<T, U> handler(SplitPointHandler<T, U> value) {
+			if (value==null) {
+				throw new IllegalArgumentException("Null handler not allowed.");
+			}
+			this.handler = value;
+			return this;
+		}
+
+		/**
+		 * Sets the maximum number of split points to consider for each page,
+		 * including the longest possible page. The default is 4.
+		 * @param value the lookahead
+		 * @return returns this builder
+		 * @throws IllegalArgumentException if the value is less than 1
+		 */
+		public Builder<T, U> lookahead(int value) {
+			if (value<1) {
+				throw new IllegalArgumentException("Value must be greater than zero: " + value);
+			}
+			this.lookahead = value;
+			return this;
+		}
+
+		/**
+		 * Sets the maximum number of start positions to keep for each page.
+		 * The default is 16.
+		 * @param value the beam width
+		 * @return returns this builder
+		 * @throws IllegalArgumentException if the value is less than 1
+		 */
+		public Builder<T, U> beamWidth(int value) {
+			if (value<1) {
+				throw new IllegalArgumentException("Value must be greater than zero: " + value);
+			}
+			this.beamWidth = value;
+			return this;
+		}
+
+		/**
+		 * Creates a new split point optimizer with the current configuration.
+		 * @return returns a new split point optimizer
+		 */
+		public SplitPointOptimizer<T, U> build() {
+			return new SplitPointOptimizer<>(this);
+		}
+	}
+
+	/**
+	 * Creates a new split point optimizer with the default configuration.
+	 */
+	public SplitPointOptimizer() {
+		this(new Builder<T, U>());
+	}
+
+	private SplitPointOptimizer(Builder<T, U> builder) {
+		this.handler = builder.handler;
+		this.lookahead = builder.lookahead;
+		this.beamWidth = builder.beamWidth;
+	}
+
+	private static class Node<U> {
+		private final U data;
+		private final int offset;
+		private final double cost;
+		private final Node<U> previous;
+		private final SplitPointSpecification spec;
+
+		private Node(U data, int offset, double cost, Node<U> previous, SplitPointSpecification spec) {
+			this.data = data;
+			this.offset = offset;
+			this.cost = cost;
+			this.previous = previous;
+			this.spec = spec;
+		}
+	}
+
+	/**
+	 * Finds the split points for the data using the default cost.
+	 * @param data the data to split
+	 * @param pageHeights the page heights, the last height is used for all remaining pages
+	 * @param options the split options
+	 * @return returns a list of split point specifications, one for each page. The
+	 * 			specifications should be applied in order using {@link SplitPointHandler#split(SplitPointSpecification, SplitPointDataSource)},
+	 * 			each one on the tail of the previous result.
+	 * @throws IllegalArgumentException if the list of page heights is empty
+	 * @throws IllegalStateException if the data cannot be split using the supplied page heights
+	 */
+	public List<SplitPointSpecification> find(U data, List<Float> pageHeights, SplitOption ... options) {
+		return find(data, pageHeights, (units, index, limit)->(double)(limit-index)*(limit-index), options);
+	}
+
+	/**
+	 * Finds the split points for the data.
+	 * @param data the data to split
+	 * @param pageHeights the page heights, the last height is used for all remaining pages
+	 * @param cost the cost of ending a page after the unit with the specified index, where
+	 * 			the limit is the index of the last unit of the longest possible page.
+	 * @param options the split options
+	 * @return returns a list of split point specifications, one for each page. The
+	 * 			specifications should be applied in order using {@link SplitPointHandler#split(SplitPointSpecification, SplitPointDataSource)},
+	 * 			each one on the tail of the previous result.
+	 * @throws IllegalArgumentException if the list of page heights is empty, or if cost is null
+	 * @throws IllegalStateException if the data cannot be split using the supplied page heights
+	 */
+	public List<SplitPointSpecification> find(U data, List<Float> pageHeights, SplitPointCost<T> cost, SplitOption ... options) {
+		if (pageHeights.isEmpty()) {
+			throw new IllegalArgumentException("No page heights.");
+		}
+		if (cost==null) {
+			throw new IllegalArgumentException("Null cost not allowed.");
+		}
+		if (data.isEmpty()) {
+			return Collections.emptyList();
+		}
+		SplitPointHandler.SplitOptions opts = SplitPointHandler.SplitOptions.parse(options);
+		List<Node<U>> layer = Collections.singletonList(new Node<>(data, 0, 0, null, null));
+		Node<U> best = null;
+		for (int page = 0; !layer.isEmpty(); page++) {
+			float height = pageHeights.get(Math.min(page, pageHeights.size()-1));
+			Map<Integer, Node<U>> next = new HashMap<>();
+			for (Node<U> n : layer) {
+				if (best!=null && n.cost>=best.cost) {
+					// nothing left to gain from this node
+					continue;
+				}
+				int limit = handler.findLimit(height, n.data, opts.useLastUnitSize);
+				if (limit==SplitPointHandler.LIMIT_ALL) {
+					if (best==null || n.cost<best.cost) {
+						best = new Node<>(n.data.createEmpty(), -1, n.cost, n, SplitPointSpecification.all());
+					}
+				} else if (limit>=0) {
+					SplitPointSpecification spec = handler.findBreakpointFromPosition(n.data, limit, opts.useForce, SplitPointHandler.defaultCost(), opts.trimTrailing);
+					int last = spec.getIndex()-1;
+					if (last<0) {
+						// nothing fits on this page
+						continue;
+					}
+					add(next, n, spec, cost.getCost(n.data, last, limit));
+					int found = 1;
+					for (int i=last-1; i>=0 && found<lookahead; i--) {
+						if (n.data.get(i).isBreakable()) {
+							add(next, n, new SplitPointSpecification(i+1, false, opts.trimTrailing), cost.getCost(n.data, i, limit));
+							found++;
+						}
+					}
+				}
+			}
+			List<Node<U>> nodes = new ArrayList<>(next.values());
+			nodes.sort(Comparator.comparingDouble((Node<U> n)->n.cost).thenComparingInt(n->-n.offset));
+			layer = nodes.size()>beamWidth?nodes.subList(0, beamWidth):nodes;
+		}
+		if (best==null) {
+			throw new IllegalStateException("The data cannot be split using the supplied page heights.");
+		}
+		LinkedList<SplitPointSpecification> ret = new LinkedList<>();
+		for (Node<U> n = best; n.previous!=null; n = n.previous) {
+			ret.addFirst(n.spec);
+		}
+		return ret;
+	}
+
+	private void add(Map<Integer, Node<U>> next, Node<U> n, SplitPointSpecification spec, double cost) {
+		int offset = n.offset + spec.getIndex();
+		double total = n.cost + cost;
+		Node<U> current = next.get(offset);
+		if (current==null || total<current.cost) {
+			next.put(offset, new Node<>(n.data.split(spec.getIndex()).tail(), offset, total, n, spec));
+		}
+	}
+
+}
@@ -0,0 +1,99 @@
+package org.daisy.dotify.common.splitter;
+
+/**
+ * <p>Provides an index based split point result. The indices refer to the
+ * arrays that were split, see {@link SplitPointHandler#split(float, float[], float[], java.util.BitSet, java.util.BitSet, int, SplitOption...)}.</p>
+ *
+ * <p>The head contains the units from the start index to the head end index (exclusive),
+ * the discarded units are the units from the head end index to the tail start index (exclusive),
+ * and the tail contains the units from the tail start index.</p>
+ *
+ * @author Joel Håkansson
+ */
+public final class SplitPointRange {
+	private final int start;
+	private final int headEnd;
+	private final int tailStart;
+	private final boolean hardBreak;
+
+	SplitPointRange(int start, int headEnd, int tailStart, boolean hardBreak) {
+		this.start = start;
+		this.headEnd = headEnd;
+		this.tailStart = tailStart;
+		this.hardBreak = hardBreak;
+	}
+
+	/**
+	 * Gets the index of the first unit of the head.
+	 * @return returns the start index
+	 */
+	public int getStart() {
+		return start;
+	}
+
+	/**
+	 * Gets the index following the last unit of the head.
+	 * @return returns the head end index
+	 */
+	public int getHeadEnd() {
+		return headEnd;
+	}
+
+	/**
+	 * Gets the index of the first unit of the tail. This is where
+	 * the next split should start.
+	 * @return returns the tail start index
+	 */
+	public int getTailStart() {
+		return tailStart;
+	}
+
+	/**
+	 * Gets the number of units in the head.
+	 * @return returns the head size
+	 */
+	public int getHeadSize() {
+		return headEnd-start;
+	}
+
+	/**
+	 * Returns true if a break point could not be achieved with respect for break point boundaries.
+	 * @return returns true if the break is a hard break, false otherwise
+	 */
+	public boolean isHardBreak() {
+		return hardBreak;
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + start;
+		result = prime * result + headEnd;
+		result = prime * result + tailStart;
+		result = prime * result + (hardBreak ? 1231 : 1237);
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj == null) {
+			return false;
+		}
+		if (getClass() != obj.getClass()) {
+			return false;
+		}
+		SplitPointRange other = (SplitPointRange) obj;
+		return start==other.start && headEnd==other.headEnd && tailStart==other.tailStart && hardBreak==other.hardBreak;
+	}
+
+	@Override
+	public String toString() {
+		return "SplitPointRange [start=" + start + ", headEnd=" + headEnd + ", tailStart=" + tailStart
+				+ ", hardBreak=" + hardBreak + "]";
+	}
+
+}
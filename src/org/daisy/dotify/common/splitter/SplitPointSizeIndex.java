@@ -0,0 +1,359 @@
+package org.daisy.dotify.common.splitter;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <p>Provides a precomputed size index for a list of units. The index contains
+ * cumulative unit sizes, the collapse groups found when stepping through the
+ * units from the start and the supplement sizes at the point of their first
+ * occurrence. This makes it possible to answer size queries for a window
+ * starting at a given offset using prefix differences and binary search, rather
+ * than by stepping through the units.</p>
+ *
+ * <p>A window can only be searched if it starts at a collapse group boundary and
+ * if no supplement is referenced both before and after the window start.
+ * See {@link #isSearchable(int)}.</p>
+ *
+ * <p>Sizes are accumulated in double precision, while {@link SizeStep} accumulates
+ * them in single precision starting from the window offset. The results are only the
+ * same if no rounding occurs in either case. Therefore, the index can only be searched
+ * if all sizes are multiples of a common power of two and all sums are small
+ * enough to be exact in single precision. This is the case for integer sizes
+ * up to 2<sup>24</sup> in total.</p>
+ *
+ * @author Joel Håkansson
+ *
+ * @param <T> the type of split point units
+ */
+final class SplitPointSizeIndex<T extends SplitPointUnit> {
+	private final List<T> units;
+	private final Supplements<T> supplements;
+	private final int size;
+	private final double overhead;
+	private final boolean valid;
+	private final float[] unitSize;
+	private final float[] lastUnitSize;
+	// prefix sums over all units, n+1 elements
+	private final double[] unitSum;
+	private final double[] suppSum;
+	private final int[] suppCount;
+	// state after processing each unit with collapsing, n elements
+	private final double[] emitted;
+	private final double[] committed;
+	private final double[] emittedSupp;
+	private final double[] committedSupp;
+	private final int[] emittedSuppCount;
+	private final int[] committedSuppCount;
+	private final int[] buffer;
+	// window start properties, n+1 elements
+	private final boolean[] boundary;
+	private final int[] minPrevious;
+	private final double maxLastUnitExcess;
+
+	SplitPointSizeIndex(List<T> units, Supplements<T> supplements) {
+		this.units = units;
+		this.supplements = supplements;
+		this.size = units.size();
+		this.overhead = supplements.getOverhead();
+		this.unitSize = new float[size];
+		this.lastUnitSize = new float[size];
+		this.unitSum = new double[size+1];
+		this.suppSum = new double[size+1];
+		this.suppCount = new int[size+1];
+		this.emitted = new double[size];
+		this.committed = new double[size];
+		this.emittedSupp = new double[size];
+		this.committedSupp = new double[size];
+		this.emittedSuppCount = new int[size];
+		this.committedSuppCount = new int[size];
+		this.buffer = new int[size];
+		this.boundary = new boolean[size+1];
+		this.minPrevious = new int[size+1];
+		boolean ok = overhead>=0 && (float)overhead==overhead;
+		double excess = 0;
+		// the exponent of the least significant bit of all sizes
+		int lowestBit = lowestBit((float)overhead);
+		// an upper bound for all sums
+		double total = overhead;
+
+		// Unit sizes and the first occurrences of supplements, without collapsing
+		Set<String> allIds = new HashSet<>();
+		Map<String, Integer> lastSeen = new HashMap<>();
+		int[] prev = new int[size];
+		for (int i=0; i<size; i++) {
+			T unit = units.get(i);
+			unitSize[i] = unit.getUnitSize();
+			lastUnitSize[i] = unit.getLastUnitSize();
+			ok &= unitSize[i]>=0 && lastUnitSize[i]>=0;
+			excess = Math.max(excess, lastUnitSize[i]-unitSize[i]);
+			lowestBit = Math.min(lowestBit, Math.min(lowestBit(unitSize[i]), lowestBit(lastUnitSize[i])));
+			unitSum[i+1] = unitSum[i] + unitSize[i];
+			suppSum[i+1] = suppSum[i];
+			suppCount[i+1] = suppCount[i];
+			prev[i] = Integer.MAX_VALUE;
+			List<String> ids = unit.getSupplementaryIDs();
+			if (ids!=null) {
+				for (String id : ids) {
+					T item = supplements.get(id);
+					if (item==null) {
+						continue;
+					}
+					Integer p = lastSeen.put(id, i);
+					if (p!=null) {
+						// a duplicate within a unit is counted more than once by SizeStep
+						ok &= p!=i;
+						prev[i] = Math.min(prev[i], p);
+					}
+					if (allIds.add(id)) {
+						ok &= item.getUnitSize()>=0;
+						lowestBit = Math.min(lowestBit, lowestBit(item.getUnitSize()));
+						suppSum[i+1] += item.getUnitSize();
+						suppCount[i+1]++;
+					}
+				}
+			}
+		}
+		total += unitSum[size] + suppSum[size] + excess;
+		// a sum of multiples of 2^lowestBit is exact if it is less than 2^(24+lowestBit)
+		ok &= lowestBit==Integer.MAX_VALUE || total<Math.scalb(1.0, 24+lowestBit);
+		minPrevious[size] = Integer.MAX_VALUE;
+		for (int i=size-1; i>=0; i--) {
+			minPrevious[i] = Math.min(minPrevious[i+1], prev[i]);
+		}
+
+		// Collapse groups, see SplitPointHandler.findCollapse
+		Emitted<T> em = new Emitted<>(supplements);
+		T max = null;
+		int maxIndex = -1;
+		boundary[0] = true;
+		for (int i=0; i<size; i++) {
+			T c = units.get(i);
+			if (c.isCollapsible()) {
+				if (max!=null) {
+					if (max.collapsesWith(c)) {
+						if (SplitPointHandler.maxSize(max, c)==c) {
+							max = c;
+							maxIndex = i;
+						}
+					} else {
+						em.add(max);
+						max = c;
+						maxIndex = i;
+					}
+				} else {
+					max = c;
+					maxIndex = i;
+				}
+			} else {
+				if (max!=null) {
+					em.add(max);
+					max = null;
+					maxIndex = -1;
+				}
+				em.add(c);
+			}
+			emitted[i] = em.size;
+			emittedSupp[i] = em.suppSize;
+			emittedSuppCount[i] = em.suppCount;
+			buffer[i] = maxIndex;
+			committed[i] = em.size;
+			committedSupp[i] = em.suppSize;
+			committedSuppCount[i] = em.suppCount;
+			if (max!=null) {
+				committed[i] += max.getUnitSize();
+				List<String> ids = max.getSupplementaryIDs();
+				if (ids!=null) {
+					for (String id : ids) {
+						if (!em.ids.contains(id)) {
+							T item = supplements.get(id);
+							if (item!=null) {
+								committedSupp[i] += item.getUnitSize();
+								committedSuppCount[i]++;
+							}
+						}
+					}
+				}
+			}
+			boundary[i+1] = max==null || i+1==size || !(units.get(i+1).isCollapsible() && max.collapsesWith(units.get(i+1)));
+		}
+		this.valid = ok;
+		this.maxLastUnitExcess = excess;
+	}
+
+	/**
+	 * Keeps track of the units that are included in the result. 
+	 */
+	private static class Emitted<T extends SplitPointUnit> {
+		private final Supplements<T> supplements;
+		private final Set<String> ids = new HashSet<>();
+		private double size = 0;
+		private double suppSize = 0;
+		private int suppCount = 0;
+
+		private Emitted(Supplements<T> supplements) {
+			this.supplements = supplements;
+		}
+
+		private void add(T unit) {
+			size += unit.getUnitSize();
+			List<String> idList = unit.getSupplementaryIDs();
+			if (idList!=null) {
+				for (String id : idList) {
+					if (ids.add(id)) {
+						T item = supplements.get(id);
+						if (item!=null) {
+							suppSize += item.getUnitSize();
+							suppCount++;
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Gets the exponent of the least significant bit of a size.
+	 * @param value the size
+	 * @return returns the exponent, or Integer.MAX_VALUE if the size is zero
+	 */
+	static int lowestBit(float value) {
+		int bits = Float.floatToRawIntBits(value);
+		int exponent = (bits>>>23) & 0xff;
+		int mantissa = bits & 0x7fffff;
+		if (exponent!=0) {
+			// normal number, add the implicit bit
+			mantissa |= 0x800000;
+		} else {
+			exponent = 1;
+		}
+		return mantissa==0?Integer.MAX_VALUE:exponent-150+Integer.numberOfTrailingZeros(mantissa);
+	}
+
+	List<T> getUnits() {
+		return units;
+	}
+
+	Supplements<T> getSupplements() {
+		return supplements;
+	}
+
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Returns true if the window starting at the specified offset can be
+	 * searched using this index.
+	 * @param offset the window offset
+	 * @return true if the window can be searched, false otherwise
+	 */
+	boolean isSearchable(int offset) {
+		return valid && offset<size && boundary[offset] && minPrevious[offset]>=offset;
+	}
+
+	/**
+	 * Returns true if the units in the window starting at the specified offset
+	 * fit within the limit. This is equivalent to {@link SplitPointHandler#fits(SplitPointDataSource, float, boolean)}.
+	 * @param offset the window offset, must be searchable
+	 * @param limit the limit
+	 * @param useLastUnitSize true if the last unit size should be used for the last unit
+	 * @return true if the units fit, false otherwise
+	 */
+	boolean fits(int offset, float limit, boolean useLastUnitSize) {
+		int last = size-1;
+		double total = unitSum[size] - unitSum[offset]
+				+ (useLastUnitSize?lastUnitSize[last]-unitSize[last]:0)
+				+ suppSum[size] - suppSum[offset]
+				+ (suppCount[size]-suppCount[offset]>0?overhead:0);
+		return total<=limit;
+	}
+
+	/**
+	 * Finds the first unit, relative to the offset, that overflows the break point when
+	 * collapsing units. The result minus one is equivalent to
+	 * {@link SplitPointHandler#findCollapse(SplitPointDataSource, StepForward)} using a {@link SizeStep}.
+	 * @param offset the window offset, must be searchable
+	 * @param breakPoint the break point
+	 * @param useLastUnitSize true if the last unit size should be used for the last unit
+	 * @return the index of the first overflowing unit, relative to the offset, or the window size if
+	 * 		no unit overflows
+	 */
+	int findOverflow(int offset, float breakPoint, boolean useLastUnitSize) {
+		// no unit before the first index where the upper bound overflows can overflow
+		int from = search(offset, breakPoint, useLastUnitSize, true);
+		// the unit after the first index where the lower bound overflows will overflow
+		int to = Math.min(search(offset, breakPoint, useLastUnitSize, false)+1, size-1);
+		for (int i=from; i<=to; i++) {
+			if (value(offset, i, useLastUnitSize)>breakPoint) {
+				return i-offset;
+			}
+		}
+		return size-offset;
+	}
+
+	private int search(int offset, float breakPoint, boolean useLastUnitSize, boolean upper) {
+		int lo = offset;
+		int hi = size;
+		while (lo<hi) {
+			int mid = (lo+hi)>>>1;
+			double v = upper?upperBound(offset, mid, useLastUnitSize):lowerBound(offset, mid);
+			if (v>breakPoint) {
+				hi = mid;
+			} else {
+				lo = mid+1;
+			}
+		}
+		return lo;
+	}
+
+	/**
+	 * Gets the size of the window up to and including the unit at index i,
+	 * as computed by {@link SizeStep#overflows(SplitPointUnit)}.
+	 */
+	private double value(int offset, int i, boolean useLastUnitSize) {
+		double e = emitted[i] - committedBase(offset);
+		double s = emittedSupp[i] - committedSuppBase(offset);
+		int c = emittedSuppCount[i] - committedSuppCountBase(offset);
+		int b = buffer[i];
+		if (b<0) {
+			return e + (useLastUnitSize?lastUnitSize[i]-unitSize[i]:0) + s + (c>0?overhead:0);
+		} else {
+			int cb = committedSuppCount[i]-emittedSuppCount[i];
+			return e + (useLastUnitSize?lastUnitSize[b]:unitSize[b]) + s + committedSupp[i] - emittedSupp[i] + (c>0||cb>0?overhead:0);
+		}
+	}
+
+	/**
+	 * A monotonic value that is greater than or equal to the value at index i.
+	 */
+	private double upperBound(int offset, int i, boolean useLastUnitSize) {
+		return committed[i] - committedBase(offset)
+				+ suppSum[i+1] - suppSum[offset]
+				+ (suppCount[i+1]-suppCount[offset]>0?overhead:0)
+				+ (useLastUnitSize?maxLastUnitExcess:0);
+	}
+
+	/**
+	 * A monotonic value that is less than or equal to the value at index i+1.
+	 */
+	private double lowerBound(int offset, int i) {
+		return emitted[i] - committedBase(offset) + emittedSupp[i] - committedSuppBase(offset);
+	}
+
+	private double committedBase(int offset) {
+		return offset==0?0:committed[offset-1];
+	}
+
+	private double committedSuppBase(int offset) {
+		return offset==0?0:committedSupp[offset-1];
+	}
+
+	private int committedSuppCountBase(int offset) {
+		return offset==0?0:committedSuppCount[offset-1];
+	}
+
+}
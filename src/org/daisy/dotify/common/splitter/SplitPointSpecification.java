@@ -5,10 +5,25 @@ package org.daisy.dotify.common.splitter;
  * @author Joel Håkansson
  */
 public class SplitPointSpecification {
-	enum Type {
+	/**
+	 * Provides the types of split points.
+	 */
+	public enum Type {
+		/**
+		 * All units fit.
+		 */
 		ALL,
+		/**
+		 * No units fit.
+		 */
 		NONE,
+		/**
+		 * There are no units.
+		 */
 		EMPTY,
+		/**
+		 * The units are split at an index.
+		 */
 		INDEX;
 	}
 	private static final SplitPointSpecification INSTANCE_NONE = new SplitPointSpecification(Type.NONE);
@@ -18,6 +33,7 @@ public class SplitPointSpecification {
 	private final boolean hard;
 	private final Type type;
 	private final boolean trimTrailing;
+	private final HeadRecording<?> recording;
 
 	private SplitPointSpecification(Type type) {
 		if (type==Type.INDEX) {
@@ -27,9 +43,21 @@ public class SplitPointSpecification {
 		this.hard = false;
 		this.index = -1;
 		this.trimTrailing = false;
+		this.recording = null;
 	}
 
 	SplitPointSpecification(int index, boolean hard, boolean trimTrailing) {
+		this(index, hard, trimTrailing, null);
+	}
+
+	/**
+	 * Creates a new specification with a recording of the units before the split point.
+	 * @param index the index
+	 * @param hard true if the split point is a hard break
+	 * @param trimTrailing true if trailing skippable units should be trimmed
+	 * @param recording the recording, or null
+	 */
+	SplitPointSpecification(int index, boolean hard, boolean trimTrailing, HeadRecording<?> recording) {
 		if (index<0) {
 			throw new IllegalArgumentException("Index out of bounds: " + index);
 		}
@@ -37,6 +65,7 @@ public class SplitPointSpecification {
 		this.hard = hard;
 		this.index = index;
 		this.trimTrailing = trimTrailing;
+		this.recording = recording;
 	}
 	
 	static SplitPointSpecification none() {
@@ -73,4 +102,20 @@ public class SplitPointSpecification {
 		return trimTrailing;
 	}
 
+	/**
+	 * Gets the recording of the units before the split point, if available.
+	 * @return returns the recording, or null
+	 */
+	HeadRecording<?> getRecording() {
+		return recording;
+	}
+
+	/**
+	 * Returns this specification without a recording.
+	 * @return returns a specification without a recording
+	 */
+	SplitPointSpecification withoutRecording() {
+		return recording==null?this:new SplitPointSpecification(index, hard, trimTrailing);
+	}
+
 }
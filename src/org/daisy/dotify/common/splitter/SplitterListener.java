@@ -0,0 +1,23 @@
+package org.daisy.dotify.common.splitter;
+
+/**
+ * <p>Provides a listener for the split point searches made by a {@link SplitPointHandler}.
+ * A listener is set using {@link SplitPointHandler.Builder#listener(SplitterListener)}.</p>
+ *
+ * <p>If no listener is set, no metrics are collected. The listener is called
+ * on the thread that made the search, therefore an implementation
+ * must be thread safe if the handler is used by several threads.</p>
+ *
+ * @author Joel Håkansson
+ * @see SplitterMetricsAggregator
+ */
+@FunctionalInterface
+public interface SplitterListener {
+
+	/**
+	 * Called when a split point search has completed.
+	 * @param metrics the metrics of the search
+	 */
+	public void splitPointFound(SplitterMetrics metrics);
+
+}
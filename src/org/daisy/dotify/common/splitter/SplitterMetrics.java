@@ -0,0 +1,226 @@
+package org.daisy.dotify.common.splitter;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+import org.daisy.dotify.common.splitter.SplitPointHandler.SplitOptions;
+import org.daisy.dotify.common.splitter.SplitPointSpecification.Type;
+
+/**
+ * <p>Provides the metrics of a single split point search. The metrics are collected
+ * while searching and passed to the {@link SplitterListener} of the handler once
+ * the search has completed. After that, the metrics do not change.</p>
+ *
+ * <p>The unit counts are the number of units visited in each phase of the search.
+ * Searches on an {@link IndexedSplitPointDataList} with a size index do not visit
+ * the units when finding the units that fit, and a cached result does not visit any units at all.</p>
+ *
+ * <p>The input of the search is described by the break point, the options and the
+ * position of the data. The data itself is not referenced, so keeping the metrics
+ * does not keep the data in memory.</p>
+ *
+ * @author Joel Håkansson
+ */
+public final class SplitterMetrics {
+	private int sizeUnits = 0;
+	private int collapseUnits = 0;
+	private int costCalls = 0;
+	private int supplementLookups = 0;
+	private boolean cached = false;
+	private Type type = null;
+	private long nanos = 0;
+	private float breakPoint = 0;
+	private Set<StandardSplitOption> options = Collections.emptySet();
+	private String data = null;
+	private int offset = -1;
+	private int size = -1;
+
+	SplitterMetrics() {
+		super();
+	}
+
+	/**
+	 * Sets the input of the search.
+	 * @param breakPoint the break point
+	 * @param opts the split options
+	 * @param data the data
+	 */
+	void input(float breakPoint, SplitOptions opts, SplitPointDataSource<?, ?> data) {
+		this.breakPoint = breakPoint;
+		EnumSet<StandardSplitOption> o = EnumSet.noneOf(StandardSplitOption.class);
+		if (opts.useForce) {
+			o.add(StandardSplitOption.ALLOW_FORCE);
+		}
+		if (!opts.trimTrailing) {
+			o.add(StandardSplitOption.RETAIN_TRAILING);
+		}
+		if (!opts.useLastUnitSize) {
+			o.add(StandardSplitOption.NO_LAST_UNIT_SIZE);
+		}
+		this.options = Collections.unmodifiableSet(o);
+		// the identity of the units is shared by all tails of the same data
+		Object units;
+		if (data instanceof SplitPointDataList) {
+			SplitPointDataList<?> d = (SplitPointDataList<?>)data;
+			units = d.getUnits();
+			this.offset = d.getOffset();
+		} else if (data instanceof IndexedSplitPointDataList) {
+			IndexedSplitPointDataList<?> d = (IndexedSplitPointDataList<?>)data;
+			units = d.getIndex();
+			this.offset = d.getOffset();
+		} else if (data instanceof ColumnarSplitPointDataList) {
+			ColumnarSplitPointDataList<?> d = (ColumnarSplitPointDataList<?>)data;
+			units = d.getColumns();
+			this.offset = d.getOffset();
+		} else {
+			// the size of other data sources is unknown without reading the units
+			units = data;
+		}
+		if (offset>=0) {
+			this.size = data.getSize(Integer.MAX_VALUE);
+		}
+		this.data = data.getClass().getSimpleName() + "@" + Integer.toHexString(System.identityHashCode(units));
+	}
+
+	void addSizeUnits(int value) {
+		sizeUnits += value;
+	}
+
+	void addCollapseUnits(int value) {
+		collapseUnits += value;
+	}
+
+	void addCostCalls(int value) {
+		costCalls += value;
+	}
+
+	void supplementLookup() {
+		supplementLookups++;
+	}
+
+	void cacheHit() {
+		cached = true;
+	}
+
+	void done(Type type, long nanos) {
+		this.type = type;
+		this.nanos = nanos;
+	}
+
+	/**
+	 * Gets the number of units visited when checking if all units fit. For
+	 * {@link SplitPointDataList} and other data sources without a special
+	 * implementation, this check is usually done while finding the last unit
+	 * that fits, in which case the value is zero.
+	 * @return returns the number of units
+	 */
+	public int getSizeUnits() {
+		return sizeUnits;
+	}
+
+	/**
+	 * Gets the number of units visited when finding the last unit that fits,
+	 * including collapsible units.
+	 * @return returns the number of units
+	 */
+	public int getCollapseUnits() {
+		return collapseUnits;
+	}
+
+	/**
+	 * Gets the number of times that {@link SplitPointCost#getCost(SplitPointDataSource, int, int)}
+	 * was called. This is always zero when the default cost is used.
+	 * @return returns the number of calls
+	 */
+	public int getCostCalls() {
+		return costCalls;
+	}
+
+	/**
+	 * Gets the number of times that a supplement was looked up.
+	 * @return returns the number of lookups
+	 */
+	public int getSupplementLookups() {
+		return supplementLookups;
+	}
+
+	/**
+	 * Returns true if the result was found in the cache.
+	 * @return true if the result was cached, false otherwise
+	 */
+	public boolean isCached() {
+		return cached;
+	}
+
+	/**
+	 * Gets the type of split point that was found.
+	 * @return returns the type
+	 */
+	public Type getType() {
+		return type;
+	}
+
+	/**
+	 * Gets the wall time of the search.
+	 * @return returns the time, in nanoseconds
+	 */
+	public long getNanos() {
+		return nanos;
+	}
+
+	/**
+	 * Gets the break point of the search.
+	 * @return returns the break point
+	 */
+	public float getBreakPoint() {
+		return breakPoint;
+	}
+
+	/**
+	 * Gets the split options of the search. Options that have no effect, such as
+	 * null, are not included.
+	 * @return returns the options
+	 */
+	public Set<StandardSplitOption> getOptions() {
+		return options;
+	}
+
+	/**
+	 * Gets a description of the data that was searched, consisting of the
+	 * type of data source and the identity hash code of its units, in hexadecimal.
+	 * The units are shared by a data source and its tails, so the description
+	 * identifies the data that a tail was split from.
+	 * @return returns the description, or null if not available
+	 */
+	public String getData() {
+		return data;
+	}
+
+	/**
+	 * Gets the offset of the data that was searched, in other words the
+	 * number of units that precede it in the units described by {@link #getData()}.
+	 * @return returns the offset, or -1 if not available for the type of data source
+	 */
+	public int getOffset() {
+		return offset;
+	}
+
+	/**
+	 * Gets the number of units in the data that was searched.
+	 * @return returns the number of units, or -1 if not available for the type of data source
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	@Override
+	public String toString() {
+		return "SplitterMetrics [type=" + type + ", nanos=" + nanos + ", breakPoint=" + breakPoint
+				+ ", options=" + options + ", data=" + data + ", offset=" + offset + ", size=" + size
+				+ ", sizeUnits=" + sizeUnits
+				+ ", collapseUnits=" + collapseUnits + ", costCalls=" + costCalls
+				+ ", supplementLookups=" + supplementLookups + ", cached=" + cached + "]";
+	}
+
+}
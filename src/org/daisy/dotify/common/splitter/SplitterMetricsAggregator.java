@@ -0,0 +1,274 @@
+package org.daisy.dotify.common.splitter;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.daisy.dotify.common.splitter.SplitPointSpecification.Type;
+
+/**
+ * <p>Provides a listener that aggregates the metrics of all split point
+ * searches into histograms. The slowest search is also kept, so that
+ * the input causing it can be located using its break point, options,
+ * data, offset and size, see {@link SplitterMetrics}.</p>
+ *
+ * <p>This class is thread safe. The getters return snapshots.</p>
+ *
+ * @author Joel Håkansson
+ */
+public class SplitterMetricsAggregator implements SplitterListener {
+	private final Histogram nanos = new Histogram();
+	private final Histogram sizeUnits = new Histogram();
+	private final Histogram collapseUnits = new Histogram();
+	private final Histogram costCalls = new Histogram();
+	private final Histogram supplementLookups = new Histogram();
+	private final Map<Type, Long> types = new EnumMap<>(Type.class);
+	private long cached = 0;
+	private SplitterMetrics slowest = null;
+
+	/**
+	 * Provides a histogram with exponential buckets. Bucket 0 counts
+	 * the values less than or equal to 0 and bucket <i>i</i> (<i>i</i>&gt;0) counts
+	 * the values from 2<sup><i>i</i>-1</sup> to 2<sup><i>i</i></sup>-1.
+	 */
+	public static final class Histogram {
+		/**
+		 * The number of buckets.
+		 */
+		public static final int BUCKETS = 64;
+		private final long[] buckets;
+		private long count;
+		private long sum;
+		private long max;
+
+		private Histogram() {
+			this.buckets = new long[BUCKETS];
+			this.count = 0;
+			this.sum = 0;
+			this.max = 0;
+		}
+
+		private Histogram(Histogram template) {
+			this.buckets = template.buckets.clone();
+			this.count = template.count;
+			this.sum = template.sum;
+			this.max = template.max;
+		}
+
+		private void add(long value) {
+			buckets[bucket(value)]++;
+			count++;
+			sum += value;
+			if (count==1 || value>max) {
+				max = value;
+			}
+		}
+
+		private void clear() {
+			Arrays.fill(buckets, 0);
+			count = 0;
+			sum = 0;
+			max = 0;
+		}
+
+		/**
+		 * Gets the bucket for a value.
+		 * @param value the value
+		 * @return returns the bucket index
+		 */
+		public static int bucket(long value) {
+			return value<=0?0:Math.min(BUCKETS-1, 64-Long.numberOfLeadingZeros(value));
+		}
+
+		/**
+		 * Gets the highest value that is counted in a bucket.
+		 * @param bucket the bucket index
+		 * @return returns the upper bound, inclusive
+		 */
+		public static long upperBound(int bucket) {
+			return bucket<=0?0:bucket>=BUCKETS-1?Long.MAX_VALUE:(1L<<bucket)-1;
+		}
+
+		/**
+		 * Gets the number of values in a bucket.
+		 * @param bucket the bucket index
+		 * @return returns the number of values
+		 * @throws IndexOutOfBoundsException if the bucket index is out of range
+		 */
+		public long getBucketCount(int bucket) {
+			return buckets[bucket];
+		}
+
+		/**
+		 * Gets the number of values.
+		 * @return returns the number of values
+		 */
+		public long getCount() {
+			return count;
+		}
+
+		/**
+		 * Gets the sum of all values.
+		 * @return returns the sum
+		 */
+		public long getSum() {
+			return sum;
+		}
+
+		/**
+		 * Gets the largest value.
+		 * @return returns the largest value, or 0 if there are no values
+		 */
+		public long getMax() {
+			return max;
+		}
+
+		/**
+		 * Gets the mean of all values.
+		 * @return returns the mean, or 0 if there are no values
+		 */
+		public double getMean() {
+			return count==0?0:(double)sum/count;
+		}
+
+		/**
+		 * Gets an upper bound for the value at the specified percentile. The value is
+		 * the upper bound of the bucket containing the percentile, but never
+		 * greater than the largest value.
+		 * @param percentile the percentile, from 0 to 100
+		 * @return returns the upper bound, or 0 if there are no values
+		 * @throws IllegalArgumentException if the percentile is out of range
+		 */
+		public long getPercentile(double percentile) {
+			if (percentile<0 || percentile>100) {
+				throw new IllegalArgumentException("Percentile out of range: " + percentile);
+			}
+			long rank = (long)Math.ceil(count*percentile/100);
+			long seen = 0;
+			for (int i=0; i<BUCKETS; i++) {
+				seen += buckets[i];
+				if (seen>=rank && seen>0) {
+					return Math.min(upperBound(i), max);
+				}
+			}
+			return 0;
+		}
+
+		@Override
+		public String toString() {
+			return "Histogram [count=" + count + ", mean=" + getMean() + ", p50=" + getPercentile(50)
+					+ ", p99=" + getPercentile(99) + ", max=" + max + "]";
+		}
+	}
+
+	/**
+	 * Creates a new empty aggregator.
+	 */
+	public SplitterMetricsAggregator() {
+		super();
+	}
+
+	@Override
+	public synchronized void splitPointFound(SplitterMetrics metrics) {
+		nanos.add(metrics.getNanos());
+		sizeUnits.add(metrics.getSizeUnits());
+		collapseUnits.add(metrics.getCollapseUnits());
+		costCalls.add(metrics.getCostCalls());
+		supplementLookups.add(metrics.getSupplementLookups());
+		types.merge(metrics.getType(), 1L, Long::sum);
+		if (metrics.isCached()) {
+			cached++;
+		}
+		if (slowest==null || metrics.getNanos()>slowest.getNanos()) {
+			slowest = metrics;
+		}
+	}
+
+	/**
+	 * Gets the number of searches.
+	 * @return returns the number of searches
+	 */
+	public synchronized long getCount() {
+		return nanos.getCount();
+	}
+
+	/**
+	 * Gets the number of searches that used a cached result.
+	 * @return returns the number of searches
+	 */
+	public synchronized long getCachedCount() {
+		return cached;
+	}
+
+	/**
+	 * Gets the number of searches that resulted in the specified type of split point.
+	 * @param type the type
+	 * @return returns the number of searches
+	 */
+	public synchronized long getTypeCount(Type type) {
+		return types.getOrDefault(type, 0L);
+	}
+
+	/**
+	 * Gets a histogram of the wall time of the searches, in nanoseconds.
+	 * @return returns the histogram
+	 */
+	public synchronized Histogram getNanos() {
+		return new Histogram(nanos);
+	}
+
+	/**
+	 * Gets a histogram of {@link SplitterMetrics#getSizeUnits()}.
+	 * @return returns the histogram
+	 */
+	public synchronized Histogram getSizeUnits() {
+		return new Histogram(sizeUnits);
+	}
+
+	/**
+	 * Gets a histogram of {@link SplitterMetrics#getCollapseUnits()}.
+	 * @return returns the histogram
+	 */
+	public synchronized Histogram getCollapseUnits() {
+		return new Histogram(collapseUnits);
+	}
+
+	/**
+	 * Gets a histogram of {@link SplitterMetrics#getCostCalls()}.
+	 * @return returns the histogram
+	 */
+	public synchronized Histogram getCostCalls() {
+		return new Histogram(costCalls);
+	}
+
+	/**
+	 * Gets a histogram of {@link SplitterMetrics#getSupplementLookups()}.
+	 * @return returns the histogram
+	 */
+	public synchronized Histogram getSupplementLookups() {
+		return new Histogram(supplementLookups);
+	}
+
+	/**
+	 * Gets the metrics of the slowest search.
+	 * @return returns the metrics, or null if there are no searches
+	 */
+	public synchronized SplitterMetrics getSlowest() {
+		return slowest;
+	}
+
+	/**
+	 * Clears all metrics.
+	 */
+	public synchronized void reset() {
+		nanos.clear();
+		sizeUnits.clear();
+		collapseUnits.clear();
+		costCalls.clear();
+		supplementLookups.clear();
+		types.clear();
+		cached = 0;
+		slowest = null;
+	}
+
+}
@@ -26,4 +26,11 @@ interface StepForward<T extends SplitPointUnit> {
 	 * @param unit the unit that is discarded
 	 */
 	void addDiscarded(T unit);
+	/**
+	 * Performed when a unit has been processed, before checking whether
+	 * the units overflow.
+	 */
+	default void unitProcessed() {
+		//Nothing to do
+	}
 }
\ No newline at end of file
@@ -0,0 +1,179 @@
+package org.daisy.dotify.common.splitter;
+
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * <p>Keeps track of the supplements referenced by the units of a page. An instance
+ * can be reused for several pages by calling {@link #reset(Supplements)} before
+ * each page.</p>
+ *
+ * <p>If the supplements implement {@link IntSupplements}, the supplements are tracked
+ * using a bit set of integer identifiers. Units implementing {@link IntSupplementUnit}
+ * provide these identifiers directly, the string identifiers of other units are
+ * converted.</p>
+ *
+ * @author Joel Håkansson
+ *
+ * @param <T> the type of split point units
+ */
+class SupplementTracker<T extends SplitPointUnit> {
+	private final Set<String> ids;
+	private final BitSet intIds;
+	private Supplements<T> map;
+	private IntSupplements<T> intMap;
+	private boolean hasSupplements;
+	private SplitterMetrics metrics;
+
+	SupplementTracker(Supplements<T> map) {
+		this.ids = new HashSet<>();
+		this.intIds = new BitSet();
+		reset(map);
+	}
+
+	/**
+	 * Forgets all supplements added so far and starts over with the specified supplements.
+	 * @param map the supplements
+	 */
+	void reset(Supplements<T> map) {
+		this.ids.clear();
+		this.intIds.clear();
+		this.map = map;
+		this.intMap = map instanceof IntSupplements?(IntSupplements<T>)map:null;
+		this.hasSupplements = false;
+	}
+
+	/**
+	 * Sets the metrics to update when looking up supplements. Resetting this
+	 * instance does not affect the metrics.
+	 * @param metrics the metrics, or null
+	 */
+	void setMetrics(SplitterMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Gets the metrics.
+	 * @return returns the metrics, or null
+	 */
+	SplitterMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Adds the supplements of the unit that have not been added before.
+	 * @param unit the unit
+	 * @param size the size so far
+	 * @return returns the size so far plus the size of the added supplements,
+	 * 		including the overhead if these are the first supplements
+	 */
+	float add(T unit, float size) {
+		return visit(unit, size, null, true);
+	}
+
+	/**
+	 * Adds the supplements of the unit that have not been added before.
+	 * @param unit the unit
+	 * @param size the size so far
+	 * @param supplements the list to add the supplements to
+	 * @return returns the size so far plus the size of the added supplements,
+	 * 		including the overhead if these are the first supplements
+	 */
+	float add(T unit, float size, List<T> supplements) {
+		return visit(unit, size, supplements, true);
+	}
+
+	/**
+	 * Adds the supplements of the unit that have not been added before.
+	 * @param unit the unit
+	 * @param supplements the list to add the supplements to
+	 */
+	void add(T unit, List<T> supplements) {
+		visit(unit, 0, supplements, true);
+	}
+
+	/**
+	 * Gets the size that the supplements of the unit would add, without adding them.
+	 * @param unit the unit
+	 * @param size the size so far
+	 * @return returns the size so far plus the size of the supplements that
+	 * 		have not been added before, including the overhead if these would be the first supplements
+	 */
+	float peek(T unit, float size) {
+		return visit(unit, size, null, false);
+	}
+
+	private float visit(T unit, float size, List<T> supplements, boolean add) {
+		boolean hasAddedOverhead = hasSupplements;
+		if (intMap!=null && unit instanceof IntSupplementUnit) {
+			int[] idList = ((IntSupplementUnit)unit).getSupplementaryIntIDs();
+			if (idList!=null) {
+				for (int id : idList) {
+					if (isNew(id, add)) {
+						if (metrics!=null) {
+							metrics.supplementLookup();
+						}
+						T item = intMap.get(id);
+						if (item!=null) {
+							if (!hasAddedOverhead) {
+								hasAddedOverhead = true;
+								size+=map.getOverhead();
+							}
+							size+=item.getUnitSize();
+							if (supplements!=null) {
+								supplements.add(item);
+							}
+						}
+					}
+				}
+			}
+		} else {
+			List<String> idList = unit.getSupplementaryIDs();
+			if (idList!=null) {
+				for (String id : idList) {
+					if (intMap!=null?isNew(intMap.getIntID(id), add):isNew(id, add)) {
+						if (metrics!=null) {
+							metrics.supplementLookup();
+						}
+						T item = map.get(id);
+						if (item!=null) {
+							if (!hasAddedOverhead) {
+								hasAddedOverhead = true;
+								size+=map.getOverhead();
+							}
+							size+=item.getUnitSize();
+							if (supplements!=null) {
+								supplements.add(item);
+							}
+						}
+					}
+				}
+			}
+		}
+		if (add) {
+			hasSupplements = hasAddedOverhead;
+		}
+		return size;
+	}
+
+	private boolean isNew(String id, boolean add) {
+		return add?ids.add(id):!ids.contains(id);
+	}
+
+	private boolean isNew(int id, boolean add) {
+		if (id<0) {
+			// there is no unit for this id
+			return false;
+		} else if (intIds.get(id)) {
+			return false;
+		} else {
+			if (add) {
+				intIds.set(id);
+			}
+			return true;
+		}
+	}
+
+}
@@ -1,38 +1,33 @@
 package org.daisy.dotify.common.splitter;
 
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 
 class TrimStep<T extends SplitPointUnit> implements StepForward<T> {
 	private final List<T> ret;
 	private final List<T> supplements;
 	private final List<T> discarded;
-	private final Supplements<T> map;
-	private final Set<String> ids;
+	private final SupplementTracker<T> tracker;
 	
 	TrimStep(Supplements<T> map) {
+		this(new SupplementTracker<>(map));
+	}
+
+	/**
+	 * Creates a new instance using the supplied tracker. The tracker
+	 * must have been reset before it is used.
+	 * @param tracker the tracker
+	 */
+	TrimStep(SupplementTracker<T> tracker) {
 		this.ret = new ArrayList<>();
 		this.supplements = new ArrayList<>();
 		this.discarded = new ArrayList<>();
-		this.map = map;
-		this.ids = new HashSet<>();
+		this.tracker = tracker;
 	}
 
 	@Override
 	public void addUnit(T unit) {
-		List<String> idList = unit.getSupplementaryIDs();
-		if (idList!=null) {
-			for (String id : idList) {
-				if (ids.add(id)) { //id didn't already exist in the list
-					T item = map.get(id);
-					if (item!=null) {
-						supplements.add(item);
-					}
-				}
-			}
-		}
+		tracker.add(unit, supplements);
 		ret.add(unit);
 	}
 
@@ -0,0 +1,210 @@
+package org.daisy.dotify.common.text;
+
+/**
+ * <p>Provides an index of the characters used by {@link BreakPointHandler}. The index
+ * holds the number of visible characters before each position and the positions of
+ * all break opportunities, in other words spaces, dashes, soft hyphens and zero width spaces.
+ * The index is created once, after which the position of a row break and the closest
+ * break opportunity before it are found using binary search.</p>
+ *
+ * <p>Soft hyphens and zero width spaces are not visible. Visible characters are counted
+ * as code points, in other words a surrogate pair counts as one character. The positions
+ * of surrogate pairs are recorded as well, so that text with only characters in the
+ * Basic Multilingual Plane can be detected once, when the index is created.</p>
+ *
+ * <p>The character array must not be modified once the index has been created.</p>
+ *
+ * @author Joel Håkansson
+ */
+final class BreakIndex {
+	private final char[] chars;
+	// the number of visible characters before each index, with one extra entry for the end
+	private final int[] visible;
+	// the indices of all break opportunities, in ascending order
+	private final int[] breaks;
+	// the indices of all spaces, in ascending order
+	private final int[] spaces;
+	// the indices of the low surrogate of all surrogate pairs, in ascending order
+	private final int[] pairs;
+
+	/**
+	 * Creates a new index of the characters.
+	 * @param chars the characters
+	 */
+	BreakIndex(char[] chars) {
+		this.chars = chars;
+		this.visible = new int[chars.length+1];
+		int breakCount = 0;
+		int spaceCount = 0;
+		int pairCount = 0;
+		for (int i=0; i<chars.length; i++) {
+			char c = chars[i];
+			if (isPair(chars, i)) {
+				// the pair is counted at its low surrogate
+				visible[i+1] = visible[i];
+				pairCount++;
+			} else {
+				visible[i+1] = BreakPointHandler.isHidden(c)?visible[i]:visible[i]+1;
+			}
+			if (isBreak(c)) {
+				breakCount++;
+				if (c==' ') {
+					spaceCount++;
+				}
+			}
+		}
+		this.breaks = new int[breakCount];
+		this.spaces = new int[spaceCount];
+		this.pairs = new int[pairCount];
+		breakCount = 0;
+		spaceCount = 0;
+		pairCount = 0;
+		for (int i=0; i<chars.length; i++) {
+			if (isBreak(chars[i])) {
+				breaks[breakCount++] = i;
+				if (chars[i]==' ') {
+					spaces[spaceCount++] = i;
+				}
+			} else if (isPair(chars, i)) {
+				pairs[pairCount++] = i+1;
+			}
+		}
+	}
+
+	/**
+	 * Returns true if the character at the index is the high surrogate of a surrogate pair.
+	 * @param chars the characters
+	 * @param i the index
+	 * @return true if a surrogate pair starts at the index, false otherwise
+	 */
+	static boolean isPair(CharSequence chars, int i) {
+		return Character.isHighSurrogate(chars.charAt(i)) && i+1<chars.length() && Character.isLowSurrogate(chars.charAt(i+1));
+	}
+
+	private static boolean isPair(char[] chars, int i) {
+		return Character.isHighSurrogate(chars[i]) && i+1<chars.length && Character.isLowSurrogate(chars[i+1]);
+	}
+
+	private static boolean isBreak(char c) {
+		switch (c) {
+			case ' ': case '-': case '\u00ad': case '\u200b':
+				return true;
+			default:
+				return false;
+		}
+	}
+
+	/**
+	 * Gets the characters of this index.
+	 * @return returns the characters
+	 */
+	char[] getChars() {
+		return chars;
+	}
+
+	/**
+	 * Returns true if all characters are in the Basic Multilingual Plane, in
+	 * other words if there are no surrogate pairs.
+	 * @return true if there are no surrogate pairs, false otherwise
+	 */
+	boolean isBmp() {
+		return pairs.length==0;
+	}
+
+	/**
+	 * Counts the code points between two indices, including soft hyphens and zero width spaces.
+	 * @param start the start index
+	 * @param end the end index (exclusive)
+	 * @return returns the number of code points
+	 */
+	int countCodePoints(int start, int end) {
+		if (pairs.length==0) {
+			return end-start;
+		}
+		// a pair is within the range if its low surrogate is after the start and before the end
+		return end-start-(countBefore(pairs, end)-countBefore(pairs, start+1));
+	}
+
+	/**
+	 * Counts the positions that are less than the index.
+	 * @param positions the positions, in ascending order
+	 * @param index the index
+	 * @return returns the number of positions
+	 */
+	private static int countBefore(int[] positions, int index) {
+		int low = 0;
+		int high = positions.length;
+		while (low<high) {
+			int mid = (low+high)>>>1;
+			if (positions[mid]<index) {
+				low = mid+1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Counts the visible characters between two indices.
+	 * @param start the start index
+	 * @param end the end index (exclusive)
+	 * @return returns the number of visible characters
+	 */
+	int countVisible(int start, int end) {
+		return visible[end]-visible[start];
+	}
+
+	/**
+	 * Finds the index of the character where the specified number of visible characters,
+	 * counting from the start index, is reached. If the number is never reached, the
+	 * index of the last character is returned. If the character is a surrogate pair,
+	 * the index of the low surrogate is returned.
+	 * @param start the start index
+	 * @param count the number of visible characters, greater than zero
+	 * @return returns the index
+	 */
+	int findPosition(int start, int count) {
+		int target = visible[start]+count;
+		if (visible[chars.length]<target) {
+			return chars.length-1;
+		}
+		// find the first end index where the count is reached
+		int low = start+1;
+		int high = chars.length;
+		while (low<high) {
+			int mid = (low+high)>>>1;
+			if (visible[mid]<target) {
+				low = mid+1;
+			} else {
+				high = mid;
+			}
+		}
+		return low-1;
+	}
+
+	/**
+	 * Finds the closest break opportunity at or before the specified index.
+	 * @param index the index
+	 * @param start the smallest index to return
+	 * @param spacesOnly true if only spaces are break opportunities, false otherwise
+	 * @return returns the index of the break opportunity, or -1 if there is none
+	 * 			between the start index and the index
+	 */
+	int findBreakBefore(int index, int start, boolean spacesOnly) {
+		int[] positions = spacesOnly?spaces:breaks;
+		// find the last position that is less than or equal to the index
+		int low = 0;
+		int high = positions.length;
+		while (low<high) {
+			int mid = (low+high)>>>1;
+			if (positions[mid]<=index) {
+				low = mid+1;
+			} else {
+				high = mid;
+			}
+		}
+		return low>0 && positions[low-1]>=start?positions[low-1]:-1;
+	}
+
+}
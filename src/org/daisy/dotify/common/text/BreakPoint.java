@@ -13,8 +13,8 @@ public class BreakPoint {
 		final int prime = 31;
 		int result = 1;
 		result = prime * result + (hardBreak ? 1231 : 1237);
-		result = prime * result + ((head == null) ? 0 : head.hashCode());
-		result = prime * result + ((tail == null) ? 0 : tail.hashCode());
+		result = prime * result + ((getHead() == null) ? 0 : getHead().hashCode());
+		result = prime * result + ((getTail() == null) ? 0 : getTail().hashCode());
 		return result;
 	}
 
@@ -33,25 +33,26 @@ public class BreakPoint {
 		if (hardBreak != other.hardBreak) {
 			return false;
 		}
-		if (head == null) {
-			if (other.head != null) {
+		if (getHead() == null) {
+			if (other.getHead() != null) {
 				return false;
 			}
-		} else if (!head.equals(other.head)) {
+		} else if (!getHead().equals(other.getHead())) {
 			return false;
 		}
-		if (tail == null) {
-			if (other.tail != null) {
+		if (getTail() == null) {
+			if (other.getTail() != null) {
 				return false;
 			}
-		} else if (!tail.equals(other.tail)) {
+		} else if (!getTail().equals(other.getTail())) {
 			return false;
 		}
 		return true;
 	}
 
-	private final String head;
-	private final String tail;
+	// a string, or characters that are converted to a string on first use
+	private CharSequence head;
+	private CharSequence tail;
 	private final boolean hardBreak;
 
 	/**
@@ -65,13 +66,31 @@ public class BreakPoint {
 		this.tail = tail;
 		this.hardBreak = hardBreak;
 	}
+
+	/**
+	 * Creates a new BreakPoint where the head and tail are converted to strings
+	 * when they are first requested.
+	 * @param head the head characters, not null
+	 * @param tail the tail characters, not null
+	 * @param hardBreak set to true if a break point could not be achieved with respect for break point boundaries
+	 */
+	BreakPoint(CharSequence head, CharSequence tail, boolean hardBreak) {
+		this.head = head;
+		this.tail = tail;
+		this.hardBreak = hardBreak;
+	}
 	
 	/**
 	 * Get the head part of the BreakPoint String
 	 * @return returns the head part of the BreakPoint String
 	 */
 	public String getHead() {
-		return head;
+		CharSequence ret = head;
+		if (ret!=null && !(ret instanceof String)) {
+			ret = ret.toString();
+			head = ret;
+		}
+		return (String)ret;
 	}
 
 	/**
@@ -79,7 +98,12 @@ public class BreakPoint {
 	 * @return returns the tail part of the BreakPoint String
 	 */
 	public String getTail() {
-		return tail;
+		CharSequence ret = tail;
+		if (ret!=null && !(ret instanceof String)) {
+			ret = ret.toString();
+			tail = ret;
+		}
+		return (String)ret;
 	}
 	
 	/**
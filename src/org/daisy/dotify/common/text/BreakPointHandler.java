@@ -1,10 +1,8 @@
 package org.daisy.dotify.common.text;
 
-import java.util.Collections;
 import java.util.Map.Entry;
 import java.util.NavigableMap;
-import java.util.TreeMap;
-import java.util.regex.Pattern;
+import java.util.function.IntUnaryOperator;
 
 
 /**
@@ -17,6 +15,9 @@ import java.util.regex.Pattern;
  * Soft hyphen (0x00ad), zero width space (0x200b), dash (0x002d)
  * and space are used to determine an appropriate break point. Soft
  * hyphens are removed in the result.
+ * 
+ * Row widths are measured in code points, so that a character outside
+ * of the Basic Multilingual Plane counts as one character.
  * @author Joel Håkansson
  *
  */
@@ -24,25 +25,57 @@ public class BreakPointHandler {
 	private static final char SOFT_HYPHEN = '\u00ad';
 	private static final char ZERO_WIDTH_SPACE = '\u200b';
 	private static final char DASH = '-';
+	private static final String DASH_STR = "-";
 	private static final char SPACE = ' ';
-	private static final Pattern LEADING_WHITESPACE = Pattern.compile("\\A[\\s\u200b]+");
-	private static final Pattern TRAILING_WHITESPACE = Pattern.compile("[\\s\u200b]+\\z");
 	private final NavigableMap<Integer, NonStandardHyphenationInfo> meta;
+	/*
+	 * The remaining text is the prefix followed by the characters of the original
+	 * string from the start index. The prefix is the rest of a replacement made by a
+	 * non-standard hyphenation rule on the previous row, so applying a rule never
+	 * changes or copies the original string.
+	 * 
+	 * Within a row, positions are relative to the start of the remaining text, so that
+	 * position zero is the first character of the prefix, if there is one.
+	 */
 	private static class State {
-		private String charsStr;
-		private int offset;
-		private State(String charsStr, int offset) {
-			this.charsStr = charsStr;
-			this.offset = offset;
+		private String prefix;
+		private int start;
+		private State(String prefix, int start) {
+			this.prefix = prefix;
+			this.start = start;
 		}
 		private State(State template) {
-			this.charsStr = template.charsStr;
-			this.offset = template.offset;
+			this.prefix = template.prefix;
+			this.start = template.start;
 		}
 		State copy() {
 			return new State(this);
 		}
 	}
+	private static class Row {
+		// the head is the prefix, the characters from start to end and the suffix
+		private String headPrefix;
+		private int headStart;
+		private int headEnd;
+		private String headSuffix;
+		// the tail is the prefix and the characters from the start
+		private String tailPrefix;
+		private int tailStart;
+		// the end of the row in the original string
+		private int end;
+		private boolean dash;
+		private boolean hard;
+		// true if the head is not a range of the original string
+		private boolean patched;
+		// the rule applied by the row, if any
+		private NonStandardHyphenationInfo rule;
+		private int rulePos;
+	}
+	private final BreakableText text;
+	private final BreakIndex index;
+	private final char[] chars;
+	// true if there are no surrogate pairs, in which case every char is a code point
+	private final boolean bmp;
 	private State state;
 	private State mark;
 
@@ -52,8 +85,7 @@ public class BreakPointHandler {
 	 *
 	 */
 	public static class Builder {
-		private final String str;
-		private final NavigableMap<Integer, NonStandardHyphenationInfo> meta;
+		private final BreakableText.Builder builder;
 		
 		/**
 		 * Creates a new builder with the string to break.
@@ -62,29 +94,20 @@ public class BreakPointHandler {
 		 * @param str the string
 		 */
 		public Builder(String str) {
-			this.str = str;
-			this.meta = new TreeMap<>();
+			this.builder = new BreakableText.Builder(str);
 		}
 
 		/**
-		 * Adds a non-standard hyphenation rule to apply if the hyphenation point
-		 * within the specified range is chosen for hyphenation.
+		 * Adds a non-standard hyphenation rule, see
+		 * {@link BreakableText.Builder#addHyphenationInfo(int, int, String)}.
 		 * 
 		 * @param offset the offset where the rule applies
 		 * @param length the length of segment that should be replaced
-		 * @param replacement the replacement string, must contain exactly 
-		 * 		one soft hyphen OR exactly one zero width space. Furthermore, the
-		 * 		replacement string is expected to push the hyphenation point 
-		 * 		towards the end of the text.
+		 * @param replacement the replacement string
 		 * @return returns the builder
 		 */
 		public Builder addHyphenationInfo(int offset, int length, String replacement) {
-			if (str.length()<offset+length) {
-				throw new IndexOutOfBoundsException();
-			}
-			//TODO: Verify that range includes at least one hyphenation point 
-			NonStandardHyphenationInfo info = new NonStandardHyphenationInfo(replacement, length);
-			meta.put(offset, info);
+			builder.addHyphenationInfo(offset, length, replacement);
 			return this;
 		}
 
@@ -93,11 +116,7 @@ public class BreakPointHandler {
 		 * @return returns a new BreakPointHandler
 		 */
 		public BreakPointHandler build() {
-			if (meta.isEmpty()) {
-				return new BreakPointHandler(str, null, 0);
-			} else {
-				return new BreakPointHandler(str, Collections.unmodifiableNavigableMap(new TreeMap<Integer, NonStandardHyphenationInfo>(meta)), 0);
-			}
+			return builder.build().newHandler();
 		}
 	}
 	
@@ -108,23 +127,29 @@ public class BreakPointHandler {
 	 * @param str the paragraph to break into rows. 
 	 */
 	public BreakPointHandler(String str) {
-		this(str, null, 0);
+		this(new BreakableText(str));
 	}
 
-	private BreakPointHandler(String str, NavigableMap<Integer, NonStandardHyphenationInfo> meta, int offset) {
-		if (str==null) {
-			throw new NullPointerException("Input string cannot be null.");
-		}
-		this.state = new State(str, offset);
+	/**
+	 * Creates a new BreakPointHandler at the start of the text.
+	 * See also {@link BreakableText#newHandler()}.
+	 * @param text the text
+	 */
+	BreakPointHandler(BreakableText text) {
+		this.text = text;
+		this.index = text.getIndex();
+		this.chars = index.getChars();
+		this.meta = text.getMeta();
+		this.bmp = text.isBmp();
+		this.state = new State("", 0);
 		this.mark = state.copy();
-		if (meta!=null) {
-			this.meta = meta;
-		} else {
-			this.meta = null;
-		}
 	}
 	
 	private BreakPointHandler(BreakPointHandler template) {
+		this.text = template.text;
+		this.index = template.index;
+		this.chars = template.chars;
+		this.bmp = template.bmp;
 		this.state = template.state.copy();
 		this.mark = template.mark.copy();
 		this.meta = template.meta;
@@ -171,110 +196,277 @@ public class BreakPointHandler {
 	 * @return returns the next break point
 	 */
 	public BreakPoint nextRow(int breakPoint, boolean force, boolean ignoreHyphens) {
-		if (state.charsStr.length()==0) {
+		if (!hasNext()) {
 			// pretty simple...
 			return new BreakPoint("", "", false);
 		}
+		Row row = new Row();
+		findRow(breakPoint, force, ignoreHyphens, row);
+		return new BreakPoint(
+				new TextSegment(row.headPrefix, chars, row.headStart, row.headEnd, true, row.headSuffix),
+				new TextSegment(row.tailPrefix, chars, row.tailStart, chars.length, false, ""),
+				row.hard);
+	}
+
+	/**
+	 * Breaks the remaining text into rows. Unlike {@link #nextRow(int, boolean)}, the
+	 * rows are returned as positions in the original string and the remaining text is
+	 * never converted to a string. When this method returns, there is no remaining text.
+	 * @param rowWidths the row widths, the last width is used for all remaining rows
+	 * @param force if force is allowed if no breakpoint is found
+	 * @return returns the rows
+	 * @throws IllegalArgumentException if the array of row widths is empty
+	 * @throws IllegalStateException if a row is empty, which happens if nothing fits on a row when force is not allowed
+	 */
+	public RowBreaks breakAll(int[] rowWidths, boolean force) {
+		if (rowWidths.length==0) {
+			throw new IllegalArgumentException("No row widths.");
+		}
+		return breakAll(row->rowWidths[Math.min(row, rowWidths.length-1)], force);
+	}
 
-		assert state.charsStr.length()==state.charsStr.codePointCount(0, state.charsStr.length());
-		if (state.charsStr.length()<=breakPoint) {
-			return finalizeBreakpointTrimTail(state.charsStr, "", false);
+	/**
+	 * Breaks the remaining text into rows. Unlike {@link #nextRow(int, boolean)}, the
+	 * rows are returned as positions in the original string and the remaining text is
+	 * never converted to a string. When this method returns, there is no remaining text.
+	 * @param rowWidth the width of a row, given the index of the row
+	 * @param force if force is allowed if no breakpoint is found
+	 * @return returns the rows
+	 * @throws IllegalStateException if a row is empty, which happens if nothing fits on a row when force is not allowed
+	 */
+	public RowBreaks breakAll(IntUnaryOperator rowWidth, boolean force) {
+		RowBreaks ret = new RowBreaks(chars);
+		Row row = new Row();
+		while (hasNext()) {
+			int start = state.start;
+			int remaining = remainingLength();
+			findRow(rowWidth.applyAsInt(ret.size()), force, false, row);
+			if (remainingLength()==remaining) {
+				throw new IllegalStateException("Nothing fits on row " + ret.size() + ".");
+			}
+			if (row.patched) {
+				ret.add(start, row.end, row.hard, row.dash,
+						new TextSegment(row.headPrefix, chars, row.headStart, row.headEnd, true, row.headSuffix).toString());
+			} else {
+				ret.add(start, row.end, row.hard, row.dash, null);
+			}
+		}
+		return ret;
+	}
+
+	private int remainingLength() {
+		return state.prefix.length() + chars.length - state.start;
+	}
+
+	/**
+	 * Counts the code points of the remaining text, including soft hyphens
+	 * and zero width spaces.
+	 * @return returns the number of code points
+	 */
+	private int remainingCodePoints() {
+		if (bmp) {
+			return remainingLength();
+		}
+		return state.prefix.codePointCount(0, state.prefix.length()) + index.countCodePoints(state.start, chars.length);
+	}
+
+	/**
+	 * Returns true if the character at the position of the string counts towards the row width,
+	 * in other words if it is not a soft hyphen, a zero width space or the high surrogate of a
+	 * surrogate pair.
+	 * @param s the string
+	 * @param i the position
+	 * @return true if the character is counted, false otherwise
+	 */
+	private boolean isCounted(String s, int i) {
+		return !isHidden(s.charAt(i)) && (bmp || !BreakIndex.isPair(s, i));
+	}
+
+	/**
+	 * Gets a character of the remaining text.
+	 * @param pos the position, relative to the start of the remaining text
+	 * @return returns the character
+	 */
+	private char charAt(int pos) {
+		int pl = state.prefix.length();
+		return pos<pl?state.prefix.charAt(pos):chars[state.start+pos-pl];
+	}
+
+	private void findRow(int breakPoint, boolean force, boolean ignoreHyphens, Row row) {
+		row.rule = null;
+		if (remainingCodePoints()<=breakPoint) {
+			int len = remainingLength();
+			finalizeBreakpoint(len, false, len, false, false, row);
 		} else if (breakPoint<=0) {
-			return finalizeBreakpointTrimTail("", state.charsStr, false);
+			finalizeBreakpoint(0, false, 0, false, false, row);
 		} else {
-			return findBreakpoint(breakPoint, force, ignoreHyphens);
+			findBreakpoint(breakPoint, force, ignoreHyphens, row);
 		}
 	}
 	
-	private BreakPoint findBreakpoint(int breakPoint, boolean force, boolean ignoreHyphens) {
-		int strPos = findBreakpointPosition(state.charsStr, breakPoint);
-		assert strPos<state.charsStr.length();
-
-		/*if (strPos>=charsStr.length()-1) {
-			head = charsStr.substring(0, strPos);
-			System.out.println(head);
-			tailStart = strPos;
-		} else */
+	private void findBreakpoint(int breakPoint, boolean force, boolean ignoreHyphens, Row row) {
+		int len = remainingLength();
+		int strPos = findBreakpointPosition(breakPoint);
+		assert strPos<len;
+
 		// check next character to see if it can be removed.
-		if (strPos==state.charsStr.length()-1) {
-			String head = state.charsStr.substring(0, strPos+1);
-			int tailStart = strPos+1;
-			return finalizeBreakpointFull(head, tailStart, false);
-		} else if (state.charsStr.charAt(strPos + 1) == SPACE || state.charsStr.charAt(strPos + 1) == ZERO_WIDTH_SPACE) {
-			String head = state.charsStr.substring(0, strPos+2); // strPos+1
-			int tailStart = strPos+2;
-			return finalizeBreakpointFull(head, tailStart, false);
+		if (strPos==len-1) {
+			finalizeBreakpoint(strPos+1, false, strPos+1, true, false, row);
+		} else if (charAt(strPos + 1) == SPACE || charAt(strPos + 1) == ZERO_WIDTH_SPACE) {
+			finalizeBreakpoint(strPos+2, false, strPos+2, true, false, row);
 		} else {
-			return newBreakpointFromPosition(strPos, breakPoint, force, ignoreHyphens);
+			newBreakpointFromPosition(strPos, breakPoint, force, ignoreHyphens, row);
 		}
 	}
 	
-	private BreakPoint newBreakpointFromPosition(int strPos, int breakPoint, boolean force, boolean ignoreHyphens) {
+	private void newBreakpointFromPosition(int strPos, int breakPoint, boolean force, boolean ignoreHyphens, Row row) {
 		// back up
-		int i=findBreakpointBefore(strPos, ignoreHyphens);
-		String head;
-		boolean hard = false;
-		int tailStart;
-		if (i<0) { // no breakpoint found, break hard 
+		int i=findBreakpointBefore(strPos, ignoreHyphens, row);
+		if (row.rule!=null) {
+			finalizePatchedBreakpoint(row);
+		} else if (i<0) { // no breakpoint found, break hard 
 			if (force) {
 				if (ignoreHyphens) {
 					// Try again without ignoring hyphens
-					BreakPoint s = newBreakpointFromPosition(strPos, breakPoint, force, false);
+					newBreakpointFromPosition(strPos, breakPoint, force, false, row);
 					// Even if the string was broken at a hyphenation point, it's a hard break in this case 
-					return new BreakPoint(s.getHead(), s.getTail(), true);
+					row.hard = true;
+				} else {
+					finalizeBreakpoint(strPos+1, false, strPos+1, true, true, row);
 				}
-				hard = true;
-				head = state.charsStr.substring(0, strPos+1);
-				tailStart = strPos+1;
 			} else {
-				head = "";
-				tailStart = 0;
+				finalizeBreakpoint(0, false, 0, true, false, row);
 			}
-		} else if (state.charsStr.charAt(i)==SPACE) { // don't ignore space at breakpoint
-			head = state.charsStr.substring(0, i+1); //i
-			tailStart = i+1;
-		} else if (state.charsStr.charAt(i)==SOFT_HYPHEN) { // convert soft hyphen to hard hyphen 
-			head = state.charsStr.substring(0, i) + DASH;
-			tailStart = i+1;
-		}  else if (state.charsStr.charAt(i)==ZERO_WIDTH_SPACE) { // ignore zero width space 
-			head = state.charsStr.substring(0, i);
-			tailStart = i+1;
-		} else if (state.charsStr.charAt(i)==DASH && state.charsStr.length()>1 && state.charsStr.charAt(i-1)==SPACE) {
+		} else if (charAt(i)==SPACE) { // don't ignore space at breakpoint
+			finalizeBreakpoint(i+1, false, i+1, true, false, row);
+		} else if (charAt(i)==SOFT_HYPHEN) { // convert soft hyphen to hard hyphen 
+			finalizeBreakpoint(i, true, i+1, true, false, row);
+		}  else if (charAt(i)==ZERO_WIDTH_SPACE) { // ignore zero width space 
+			finalizeBreakpoint(i, false, i+1, true, false, row);
+		} else if (charAt(i)==DASH && i>0 && charAt(i-1)==SPACE) {
 			// if hyphen is preceded by space, back up one more
-			head = state.charsStr.substring(0, i);
-			tailStart = i;
+			finalizeBreakpoint(i, false, i, true, false, row);
 		} else {
-			head = state.charsStr.substring(0, i+1);
-			tailStart = i+1;
+			finalizeBreakpoint(i+1, false, i+1, true, false, row);
 		}
-		return finalizeBreakpointFull(head, tailStart, hard);
 	}
-	
-	private BreakPoint finalizeBreakpointFull(String head, int tailStart, boolean hard) {
-		String tail = getTail(tailStart);
 
-		head = TRAILING_WHITESPACE.matcher(head).replaceAll("");
-		
-		return finalizeBreakpointTrimTail(head, tail, hard);
-	}
-	
-	private String getTail(int tailStart) {
-		if (state.charsStr.length()>tailStart) {
-			String tail = state.charsStr.substring(tailStart);
-			assert (tail.length()<=state.charsStr.length());
-			return tail;
+	/**
+	 * Sets the row and moves to the start of the tail.
+	 * @param headEnd the end of the head (exclusive)
+	 * @param dash true if a dash should be added to the head
+	 * @param tailStart the start of the tail
+	 * @param trimHead true if trailing whitespace should be removed from the head
+	 * @param hard true if the break point is a hard break
+	 * @param row the row to set
+	 */
+	private void finalizeBreakpoint(int headEnd, boolean dash, int tailStart, boolean trimHead, boolean hard, Row row) {
+		if (trimHead && !dash) {
+			while (headEnd>0 && isWhitespace(charAt(headEnd-1))) {
+				headEnd--;
+			}
+		}
+		setHead(headEnd, dash?DASH_STR:"", row);
+		row.end = toOriginal(headEnd);
+		row.dash = dash;
+		row.hard = hard;
+		int pl = state.prefix.length();
+		if (tailStart<pl) {
+			setTail(state.prefix.substring(tailStart), state.start, row);
 		} else {
-			return "";
+			setTail("", state.start+tailStart-pl, row);
 		}
 	}
-	
-	private BreakPoint finalizeBreakpointTrimTail(String head, String tail, boolean hard) {
+
+	/**
+	 * Sets the row when a non-standard hyphenation rule is applied and moves to the start of the tail.
+	 * The head is the remaining text up to the rule, followed by the replacement up to its
+	 * hyphenation point. The tail is the rest of the replacement, followed by the characters
+	 * after the replaced characters.
+	 * @param row the row to set
+	 */
+	private void finalizePatchedBreakpoint(Row row) {
+		String replacement = row.rule.getReplacement();
+		int k = row.rule.getBreakIndex();
+		boolean dash = replacement.charAt(k)==SOFT_HYPHEN;
+		String insert = replacement.substring(0, k);
+		if (!dash) {
+			// trim the head, as for other breaks at a zero width space
+			int e = insert.length();
+			while (e>0 && isWhitespace(insert.charAt(e-1))) {
+				e--;
+			}
+			insert = insert.substring(0, e);
+		}
+		int headEnd = row.rulePos-state.start+state.prefix.length();
+		if (insert.isEmpty() && !dash) {
+			while (headEnd>0 && isWhitespace(charAt(headEnd-1))) {
+				headEnd--;
+			}
+		}
+		setHead(headEnd, dash?insert+DASH_STR:insert, row);
+		row.patched = true;
+		row.end = row.rulePos+row.rule.getLength();
+		row.dash = dash;
+		row.hard = false;
+		setTail(replacement.substring(k+1), row.end, row);
+	}
+
+	private void setHead(int headEnd, String suffix, Row row) {
+		int pl = state.prefix.length();
+		row.headPrefix = headEnd<pl?state.prefix.substring(0, headEnd):state.prefix;
+		row.headStart = state.start;
+		row.headEnd = state.start+Math.max(0, headEnd-pl);
+		row.headSuffix = suffix;
+		row.patched = pl>0;
+	}
+
+	private void setTail(String prefix, int start, Row row) {
 		//trim leading whitespace in tail
-		tail = LEADING_WHITESPACE.matcher(tail).replaceAll("");
-		head = finalizeResult(head);
-		state.offset = state.charsStr.length() - tail.length();
-		state.charsStr = tail;
-		return new BreakPoint(head, tail, hard);
+		int i = 0;
+		while (i<prefix.length() && isWhitespace(prefix.charAt(i))) {
+			i++;
+		}
+		prefix = prefix.substring(i);
+		if (prefix.isEmpty()) {
+			while (start<chars.length && isWhitespace(chars[start])) {
+				start++;
+			}
+		}
+		row.tailPrefix = prefix;
+		row.tailStart = start;
+		state.prefix = prefix;
+		state.start = start;
+	}
+
+	/**
+	 * Gets the position in the original string of a position in the remaining text.
+	 * A position within the prefix is mapped to the start of the remaining characters
+	 * of the original string.
+	 * @param pos the position, relative to the start of the remaining text
+	 * @return returns the position in the original string
+	 */
+	private int toOriginal(int pos) {
+		return state.start+Math.max(0, pos-state.prefix.length());
+	}
+
+	/**
+	 * Gets the start of the remaining characters of the original string.
+	 * Together with {@link #getPrefix()}, this identifies the position
+	 * of this handler in the text.
+	 * @return returns the start index
+	 */
+	int getStart() {
+		return state.start;
+	}
+
+	/**
+	 * Gets the rest of a replacement made by a non-standard hyphenation rule,
+	 * which precedes the remaining characters of the original string.
+	 * @return returns the prefix, or an empty string
+	 */
+	String getPrefix() {
+		return state.prefix;
 	}
 
 	/**
@@ -282,10 +474,13 @@ public class BreakPointHandler {
 	 * @return returns the number of remaining characters
 	 */
 	public int countRemaining() {
-		if (state.charsStr==null) {
-			return 0;
+		int ret = index.countVisible(state.start, chars.length);
+		for (int i=0; i<state.prefix.length(); i++) {
+			if (isCounted(state.prefix, i)) {
+				ret++;
+			}
 		}
-		return getRemaining().length();
+		return ret;
 	}
 	
 	/**
@@ -293,104 +488,119 @@ public class BreakPointHandler {
 	 * @return returns the remaining characters
 	 */
 	public String getRemaining() {
-		return finalizeResult(state.charsStr);
+		return new TextSegment(state.prefix, chars, state.start, chars.length, true, "").toString();
 	}
-	
+
 	/**
-	 * Finds the breakpoint position in the input string by counting
+	 * Finds the breakpoint position in the remaining text by counting
 	 * all characters, excluding soft hyphen and zero width space.
-	 *  
-	 * @param charsStr
-	 * @param breakPoint
-	 * @return returns the breakpoint poisition
+	 * @param breakPoint the number of characters
+	 * @return returns the breakpoint position, relative to the start of the remaining text.
+	 * 		If the character at the position is a surrogate pair, this is the position of the low surrogate
 	 */
-	private static int findBreakpointPosition(String charsStr, int breakPoint) {
-		int strPos = -1;
+	private int findBreakpointPosition(int breakPoint) {
+		int pl = state.prefix.length();
 		int len = 0;
-		for (char c : charsStr.toCharArray()) {
-			strPos++;
-			switch (c) {
-				case SOFT_HYPHEN: case ZERO_WIDTH_SPACE:
-					break;
-				default:
-					len++;
+		for (int i=0; i<pl; i++) {
+			if (isCounted(state.prefix, i)) {
+				len++;
 			}
 			if (len>=breakPoint) {
-				break;
+				return i;
+			}
+		}
+		if (state.start>=chars.length) {
+			return pl-1;
+		}
+		return index.findPosition(state.start, breakPoint-len)-state.start+pl;
+	}
+
+	/**
+	 * Finds the closest break opportunity at or before the position.
+	 * @param pos the position, relative to the start of the remaining text
+	 * @param spacesOnly true if only spaces are break opportunities
+	 * @return returns the break opportunity, or -1 if none is found
+	 */
+	private int findBreakBefore(int pos, boolean spacesOnly) {
+		int pl = state.prefix.length();
+		if (pos>=pl) {
+			int i = index.findBreakBefore(state.start+pos-pl, state.start, spacesOnly);
+			if (i>=0) {
+				return i-state.start+pl;
+			}
+			pos = pl-1;
+		}
+		for (; pos>=0; pos--) {
+			char c = state.prefix.charAt(pos);
+			if (c==SPACE || (!spacesOnly && (c==DASH || isHidden(c)))) {
+				return pos;
 			}
 		}
-		return strPos;
+		return -1;
 	}
 	
 	/**
-	 * Finds the break point closest before the starting position.
-	 * @param charsStr
+	 * Finds the break point closest before the starting position. If a non-standard
+	 * hyphenation rule applies, the rule and its position in the original string are
+	 * set on the row.
 	 * @param strPos
 	 * @return returns the break point, or -1 if none is found
 	 */
-	private int findBreakpointBefore(int strPos, boolean ignoreHyphens) {
-		int i = strPos;
-whileLoop: while (i>=0) {
-			switch (state.charsStr.charAt(i)) {
-				case SOFT_HYPHEN: case ZERO_WIDTH_SPACE:
-					if (ignoreHyphens) {
-						break;
-					}
-					boolean done = true;
-					if (meta!=null) {
-						Entry<Integer, NonStandardHyphenationInfo> entry = meta.floorEntry(i+state.offset);
-						if (entry!=null) {
-							int head = NonStandardHyphenationInfo.getHeadLength(state.charsStr, entry.getKey()-state.offset);
-							if ((entry.getKey()+head)>i+state.offset) { // the closest entry is applicable
-								if (i+head<=strPos) { // the closest entry fits
-									NonStandardHyphenationInfo rule = entry.getValue();
-									//patch string
-									state.charsStr = rule.apply(state.charsStr, entry.getKey()-state.offset);
-									i = entry.getKey() - state.offset + head;
-								} else { //find another breakpoint
-									done = false;
-								}
-							}
+	private int findBreakpointBefore(int strPos, boolean ignoreHyphens, Row row) {
+		int pl = state.prefix.length();
+		// when hyphens are ignored, only spaces are break opportunities
+		int i = findBreakBefore(strPos, ignoreHyphens);
+		while (i>=0) {
+			if (meta!=null && i>=pl && isHidden(charAt(i))) {
+				int oi = state.start+i-pl;
+				Entry<Integer, NonStandardHyphenationInfo> entry = meta.floorEntry(oi);
+				int pos = entry!=null?entry.getKey():-1;
+				// a rule that starts before the remaining characters no longer applies
+				if (pos>=state.start && entry.getValue().getBreakIndex()>=0) {
+					int head = NonStandardHyphenationInfo.getHeadLength(chars, pos, chars.length);
+					if ((pos+head)>oi) { // the closest entry is applicable
+						if (i+head<=strPos) { // the closest entry fits
+							row.rule = entry.getValue();
+							row.rulePos = pos;
+							return i;
+						} else { //find another breakpoint
+							i = findBreakBefore(i-1, ignoreHyphens);
+							continue;
 						}
 					}
-					if (done) {
-						break whileLoop;
-					}
-					break;
-				case DASH:
-					if (ignoreHyphens) {
-						break;
-					}
-				case SPACE: 
-					//non-standard hyphenation does not apply
-					break whileLoop;
+				}
 			}
-			i--;
+			//non-standard hyphenation does not apply
+			return i;
 		}
-		return i;
+		return -1;
 	}
-	
-	private String finalizeResult(String str) {
-		StringBuilder sb = new StringBuilder();
-		for (char c : str.toCharArray()) {
-			switch (c) {
-				case SOFT_HYPHEN: case ZERO_WIDTH_SPACE:
-					// remove from output
-					break;
-				default:
-					sb.append(c);
-			}
+
+	static boolean isHidden(char c) {
+		return c==SOFT_HYPHEN || c==ZERO_WIDTH_SPACE;
+	}
+
+	/**
+	 * Returns true if the character is whitespace or zero width space, in
+	 * the same way as the regular expression <code>[\s\u200b]</code>.
+	 * @param c the character
+	 * @return true if the character is whitespace, false otherwise
+	 */
+	private static boolean isWhitespace(char c) {
+		switch (c) {
+			case SPACE: case '\t': case '\n': case '\u000b': case '\f': case '\r': case ZERO_WIDTH_SPACE:
+				return true;
+			default:
+				return false;
 		}
-		return sb.toString();
-		/*
-		return str.replaceAll(""+SOFT_HYPHEN, "").replaceAll(""+ZERO_WIDTH_SPACE, "");*/
 	}
+
 	/**
 	 * Does this BreakPointHandler has any text left to break into rows 
 	 * @return returns true if this BreakPointHandler has any text left to break into rows
 	 */
 	public boolean hasNext() {
-		return (state.charsStr!=null && state.charsStr.length()>0);
+		return !state.prefix.isEmpty() || state.start<chars.length;
 	}
 
 }
@@ -0,0 +1,225 @@
+package org.daisy.dotify.common.text;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * <p>Breaks a whole paragraph into rows at once. Unlike {@link BreakPointHandler#nextRow(int, boolean)},
+ * which fills each row as much as possible, this class minimizes the total cost of all rows,
+ * in the spirit of the Knuth-Plass line breaking algorithm. In other words, a row can be made
+ * shorter than necessary if that improves the following rows.</p>
+ *
+ * <p>The search proceeds row by row. For each row and start position, the longest row returned
+ * by the break point handler is considered, together with a limited number of shorter rows
+ * (the lookahead). These are found by asking the handler for a row that is one character shorter
+ * than the previous candidate, which means that spaces, hyphens, soft hyphens and non-standard
+ * hyphenation are handled exactly as when breaking rows one at a time. Shorter rows are forced
+ * in the same way as the longest row. Start positions reached by several paths are merged and only
+ * the least expensive positions are kept for each row (the beam width). Positions are compared
+ * without converting the remaining text to a string, so the running time is proportional to the
+ * number of rows times the beam width times the lookahead.</p>
+ *
+ * <p>The position furthest into the paragraph is always kept, so the result never has more rows
+ * than when the rows are filled one at a time. Among the results with the fewest rows, the one
+ * with the lowest total cost is returned. The cost of a row is the square of the number of unused
+ * characters on the row, except for the last row, which has no cost.</p>
+ *
+ * @author Joel Håkansson
+ */
+public class BreakPointOptimizer {
+	private final int lookahead;
+	private final int beamWidth;
+
+	/**
+	 * Provides a builder for break point optimizers.
+	 */
+	public static class Builder {
+		private int lookahead = 4;
+		private int beamWidth = 16;
+
+		/**
+		 * Creates a new builder.
+		 */
+		public Builder() {
+			super();
+		}
+
+		/**
+		 * Sets the maximum number of break points to consider for each row,
+		 * including the longest possible row. The default is 4.
+		 * @param value the lookahead
+		 * @return returns this builder
+		 * @throws IllegalArgumentException if the value is less than 1
+		 */
+		public Builder lookahead(int value) {
+			if (value<1) {
+				throw new IllegalArgumentException("Value must be greater than zero: " + value);
+			}
+			this.lookahead = value;
+			return this;
+		}
+
+		/**
+		 * Sets the maximum number of start positions to keep for each row.
+		 * The default is 16.
+		 * @param value the beam width
+		 * @return returns this builder
+		 * @throws IllegalArgumentException if the value is less than 1
+		 */
+		public Builder beamWidth(int value) {
+			if (value<1) {
+				throw new IllegalArgumentException("Value must be greater than zero: " + value);
+			}
+			this.beamWidth = value;
+			return this;
+		}
+
+		/**
+		 * Creates a new break point optimizer with the current configuration.
+		 * @return returns a new break point optimizer
+		 */
+		public BreakPointOptimizer build() {
+			return new BreakPointOptimizer(this);
+		}
+	}
+
+	/**
+	 * Creates a new break point optimizer with the default configuration.
+	 */
+	public BreakPointOptimizer() {
+		this(new Builder());
+	}
+
+	private BreakPointOptimizer(Builder builder) {
+		this.lookahead = builder.lookahead;
+		this.beamWidth = builder.beamWidth;
+	}
+
+	/**
+	 * Identifies a position in the text, see {@link BreakPointHandler#getStart()}
+	 * and {@link BreakPointHandler#getPrefix()}.
+	 */
+	private static final class Position {
+		private final String prefix;
+		private final int start;
+
+		private Position(BreakPointHandler h) {
+			this.prefix = h.getPrefix();
+			this.start = h.getStart();
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * start + prefix.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof Position)) {
+				return false;
+			}
+			Position other = (Position) obj;
+			return start == other.start && Objects.equals(prefix, other.prefix);
+		}
+	}
+
+	private static class Node {
+		private final BreakPointHandler handler;
+		private final int remaining;
+		private final double cost;
+		private final Node previous;
+		private final BreakPoint breakPoint;
+
+		private Node(BreakPointHandler handler, int remaining, double cost, Node previous, BreakPoint breakPoint) {
+			this.handler = handler;
+			this.remaining = remaining;
+			this.cost = cost;
+			this.previous = previous;
+			this.breakPoint = breakPoint;
+		}
+	}
+
+	/**
+	 * Breaks the remaining text of the handler into rows. The handler is not modified.
+	 * @param handler the break point handler, containing the text and hyphenation information
+	 * @param rowWidth the row width
+	 * @param force if force is allowed if no breakpoint is found
+	 * @return returns a list of break points, one for each row. The tail of each break point
+	 * 			is the text that remains after that row.
+	 * @throws IllegalArgumentException if the row width is less than 1
+	 * @throws IllegalStateException if the text cannot be broken into rows without force
+	 */
+	public List<BreakPoint> find(BreakPointHandler handler, int rowWidth, boolean force) {
+		if (rowWidth<1) {
+			throw new IllegalArgumentException("Value must be greater than zero: " + rowWidth);
+		}
+		if (!handler.hasNext()) {
+			return Collections.emptyList();
+		}
+		List<Node> layer = Collections.singletonList(new Node(handler.copy(), Integer.MAX_VALUE, 0, null, null));
+		Node best = null;
+		while (best==null && !layer.isEmpty()) {
+			Map<Position, Node> next = new HashMap<>();
+			for (Node n : layer) {
+				BreakPointHandler h = n.handler.copy();
+				BreakPoint bp = h.nextRow(rowWidth, force);
+				if (!h.hasNext()) {
+					if (best==null || n.cost<best.cost) {
+						best = new Node(h, 0, n.cost, n, bp);
+					}
+					continue;
+				} else if (bp.getHead().isEmpty()) {
+					// nothing fits on this row
+					continue;
+				}
+				add(next, n, h, bp, rowWidth);
+				for (int found = 1; found<lookahead && StringTools.length(bp.getHead())>1; found++) {
+					h = n.handler.copy();
+					bp = h.nextRow(StringTools.length(bp.getHead())-1, force);
+					if (bp.getHead().isEmpty()) {
+						break;
+					}
+					add(next, n, h, bp, rowWidth);
+				}
+			}
+			List<Node> nodes = new ArrayList<>(next.values());
+			nodes.sort(Comparator.comparingDouble((Node n)->n.cost).thenComparingInt(n->n.remaining));
+			if (nodes.size()>beamWidth) {
+				Node furthest = Collections.min(nodes, Comparator.comparingInt((Node n)->n.remaining));
+				nodes = new ArrayList<>(nodes.subList(0, beamWidth));
+				if (!nodes.contains(furthest)) {
+					nodes.set(beamWidth-1, furthest);
+				}
+			}
+			layer = nodes;
+		}
+		if (best==null) {
+			throw new IllegalStateException("The text cannot be broken into rows of the supplied width.");
+		}
+		LinkedList<BreakPoint> ret = new LinkedList<>();
+		for (Node n = best; n.previous!=null; n = n.previous) {
+			ret.addFirst(n.breakPoint);
+		}
+		return ret;
+	}
+
+	private static void add(Map<Position, Node> next, Node n, BreakPointHandler h, BreakPoint bp, int rowWidth) {
+		int slack = rowWidth - StringTools.length(bp.getHead());
+		double total = n.cost + (double)slack*slack;
+		Position pos = new Position(h);
+		Node current = next.get(pos);
+		if (current==null || total<current.cost) {
+			next.put(pos, new Node(h, h.countRemaining(), total, n, bp));
+		}
+	}
+
+}
@@ -0,0 +1,156 @@
+package org.daisy.dotify.common.text;
+
+import java.util.Collections;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * <p>Provides a paragraph of text that has been prepared for breaking into rows. The
+ * index of visible characters and break opportunities, and the non-standard hyphenation
+ * rules, are created once. Any number of break point handlers can then be created from
+ * the text using {@link #newHandler()}, without copying or indexing the text again.</p>
+ *
+ * <p>This class is immutable and can be shared between threads. The handlers are not
+ * thread safe, but each thread can use its own handler for the same text.</p>
+ *
+ * @author Joel Håkansson
+ */
+public final class BreakableText {
+	private final BreakIndex index;
+	private final NavigableMap<Integer, NonStandardHyphenationInfo> meta;
+	private final boolean bmp;
+
+	/**
+	 * Provides a builder for breakable text.
+	 */
+	public static class Builder {
+		private final String str;
+		private final NavigableMap<Integer, NonStandardHyphenationInfo> meta;
+
+		/**
+		 * Creates a new builder with the string to break.
+		 * All regular break points must be in supplied with the input string,
+		 * represented by hyphen 0x2d, soft hyphen 0xad or space 0x20.
+		 * @param str the string
+		 */
+		public Builder(String str) {
+			this.str = str;
+			this.meta = new TreeMap<>();
+		}
+
+		/**
+		 * Adds a non-standard hyphenation rule to apply if the hyphenation point
+		 * within the specified range is chosen for hyphenation.
+		 *
+		 * @param offset the offset where the rule applies
+		 * @param length the length of segment that should be replaced
+		 * @param replacement the replacement string, must contain exactly
+		 * 		one soft hyphen OR exactly one zero width space. Furthermore, the
+		 * 		replacement string is expected to push the hyphenation point
+		 * 		towards the end of the text.
+		 * @return returns the builder
+		 */
+		public Builder addHyphenationInfo(int offset, int length, String replacement) {
+			if (str.length()<offset+length) {
+				throw new IndexOutOfBoundsException();
+			}
+			//TODO: Verify that range includes at least one hyphenation point
+			NonStandardHyphenationInfo info = new NonStandardHyphenationInfo(replacement, length);
+			meta.put(offset, info);
+			return this;
+		}
+
+		/**
+		 * Creates a new breakable text with the specified configuration.
+		 * @return returns a new breakable text
+		 */
+		public BreakableText build() {
+			return new BreakableText(str, meta.isEmpty()?null:Collections.unmodifiableNavigableMap(new TreeMap<>(meta)));
+		}
+	}
+
+	/**
+	 * Creates a new breakable text without non-standard hyphenation rules.
+	 * All preferred break points must be in supplied with the input String,
+	 * represented by hyphen 0x2d, soft hyphen 0xad or space 0x20.
+	 * @param str the paragraph to break into rows
+	 */
+	public BreakableText(String str) {
+		this(str, null);
+	}
+
+	private BreakableText(String str, NavigableMap<Integer, NonStandardHyphenationInfo> meta) {
+		if (str==null) {
+			throw new NullPointerException("Input string cannot be null.");
+		}
+		this.index = new BreakIndex(str.toCharArray());
+		this.meta = meta;
+		boolean bmp = index.isBmp();
+		if (bmp && meta!=null) {
+			for (NonStandardHyphenationInfo info : meta.values()) {
+				String r = info.getReplacement();
+				if (r.codePointCount(0, r.length())!=r.length()) {
+					bmp = false;
+					break;
+				}
+			}
+		}
+		this.bmp = bmp;
+	}
+
+	/**
+	 * Creates a new break point handler at the start of this text.
+	 * @return returns a new break point handler
+	 */
+	public BreakPointHandler newHandler() {
+		return new BreakPointHandler(this);
+	}
+
+	/**
+	 * Gets the number of characters in the text, including soft hyphens and zero width spaces.
+	 * @return returns the length
+	 */
+	public int length() {
+		return index.getChars().length;
+	}
+
+	/**
+	 * Gets the number of visible characters in the text, in other words excluding
+	 * soft hyphens and zero width spaces. A surrogate pair counts as one character.
+	 * @return returns the number of visible characters
+	 */
+	public int countVisible() {
+		return index.countVisible(0, length());
+	}
+
+	/**
+	 * Gets the index of the text.
+	 * @return returns the index
+	 */
+	BreakIndex getIndex() {
+		return index;
+	}
+
+	/**
+	 * Returns true if the text and the replacements of the non-standard hyphenation
+	 * rules only contain characters in the Basic Multilingual Plane.
+	 * @return true if there are no surrogate pairs, false otherwise
+	 */
+	boolean isBmp() {
+		return bmp;
+	}
+
+	/**
+	 * Gets the non-standard hyphenation rules.
+	 * @return returns the rules, or null if there are none
+	 */
+	NavigableMap<Integer, NonStandardHyphenationInfo> getMeta() {
+		return meta;
+	}
+
+	@Override
+	public String toString() {
+		return new String(index.getChars());
+	}
+
+}
@@ -0,0 +1,108 @@
+package org.daisy.dotify.common.text;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * <p>Provides an immutable lookup table from Unicode code points to strings, compiled
+ * once from a map. Code points in the Basic Multilingual Plane up to the highest key
+ * are looked up directly in an array, unless the keys are too sparse for that. All
+ * other keys are stored in a small open addressing hash table. A lookup never
+ * creates any objects.</p>
+ *
+ * @author Joel Håkansson
+ */
+final class CodePointTable {
+	// the smallest dense table, which covers ASCII
+	private static final int MIN_DENSE = 0x80;
+	// the number of dense entries allowed per key
+	private static final int DENSE_FACTOR = 8;
+	private static final int NO_KEY = -1;
+	private final String[] dense;
+	// the hash table, the length is a power of two
+	private final int[] keys;
+	private final String[] values;
+	private final int mask;
+
+	private CodePointTable(String[] dense, int[] keys, String[] values) {
+		this.dense = dense;
+		this.keys = keys;
+		this.values = values;
+		this.mask = keys.length-1;
+	}
+
+	/**
+	 * Compiles a table from the specified map.
+	 * @param map the map. Keys that are not valid code points are ignored, since
+	 * 		they can never be looked up.
+	 * @return returns a new table
+	 */
+	static CodePointTable compile(Map<Integer, String> map) {
+		int highest = -1;
+		for (int key : map.keySet()) {
+			if (key<Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+				highest = Math.max(highest, key);
+			}
+		}
+		// if the keys are sparse, only ASCII is looked up directly
+		String[] dense = new String[highest<Math.max(MIN_DENSE, map.size()*DENSE_FACTOR)?highest+1:MIN_DENSE];
+		int sparse = 0;
+		for (Map.Entry<Integer, String> e : map.entrySet()) {
+			int key = e.getKey();
+			if (!Character.isValidCodePoint(key)) {
+				continue;
+			} else if (key<dense.length) {
+				dense[key] = e.getValue();
+			} else {
+				sparse++;
+			}
+		}
+		// keep the load factor at or below one half
+		int size = 1;
+		while (size<sparse*2) {
+			size <<= 1;
+		}
+		int[] keys = new int[size];
+		String[] values = new String[size];
+		Arrays.fill(keys, NO_KEY);
+		int mask = size-1;
+		for (Map.Entry<Integer, String> e : map.entrySet()) {
+			int key = e.getKey();
+			if (Character.isValidCodePoint(key) && key>=dense.length) {
+				int i = hash(key) & mask;
+				while (keys[i]!=NO_KEY) {
+					i = (i+1) & mask;
+				}
+				keys[i] = key;
+				values[i] = e.getValue();
+			}
+		}
+		return new CodePointTable(dense, keys, values);
+	}
+
+	private static int hash(int key) {
+		int h = key * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * Gets the string for the specified code point.
+	 * @param codePoint the code point
+	 * @return returns the string, or null if the code point is not in the table
+	 */
+	String get(int codePoint) {
+		if (codePoint>=0 && codePoint<dense.length) {
+			return dense[codePoint];
+		}
+		int i = hash(codePoint) & mask;
+		int key;
+		while ((key = keys[i])!=NO_KEY) {
+			if (key==codePoint) {
+				return values[i];
+			}
+			i = (i+1) & mask;
+		}
+		return null;
+	}
+
+}
@@ -1,6 +1,7 @@
 package org.daisy.dotify.common.text;
 
-import java.util.Collections;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
@@ -13,7 +14,7 @@ import java.util.Map;
  */
 public class ConditionalMapper {
 	private final int trigger;
-	private final Map<Integer, String> map;
+	private final CodePointTable map;
 	
 	/**
 	 * Creates a new mapper builder.
@@ -142,7 +143,9 @@ public class ConditionalMapper {
 		}
 		
 		/**
-		 * Builds the mapper with the current configuration.
+		 * Builds the mapper with the current configuration. The mappings are
+		 * compiled into a lookup table, so that replacing characters does not
+		 * create any objects other than the result.
 		 * @return returns a new mapper instance
 		 */
 		public ConditionalMapper build() {
@@ -203,7 +206,7 @@ public class ConditionalMapper {
 
 	private ConditionalMapper(Builder builder) {
 		this.trigger = builder.trigger;
-		this.map = Collections.unmodifiableMap(new HashMap<>(builder.map));
+		this.map = CodePointTable.compile(builder.map);
 	}
 	
 	/**
@@ -212,28 +215,48 @@ public class ConditionalMapper {
 	 * @return returns the modified string
 	 */
 	public String replace(String input) {
-		StringBuilder ret = new StringBuilder();
+		StringBuilder ret = new StringBuilder(input.length());
+		try {
+			replace(input, ret);
+		} catch (IOException e) {
+			// a StringBuilder does not throw IOException
+			throw new UncheckedIOException(e);
+		}
+		return ret.toString();
+	}
+
+	/**
+	 * Replaces characters in the input according to the rules of this mapper
+	 * and appends the result to the output. Apart from what the output does
+	 * when characters are appended, this method does not create any objects.
+	 * @param input the input
+	 * @param out the output
+	 * @throws IOException if the output throws an IOException
+	 */
+	public void replace(CharSequence input, Appendable out) throws IOException {
 		boolean active = false;
-		Iterator<Integer> chars = input.codePoints().iterator();
-		while (chars.hasNext()) {
-			int current = chars.next();
+		int len = input.length();
+		int i = 0;
+		while (i<len) {
+			int current = Character.codePointAt(input, i);
+			int next = i + Character.charCount(current);
 			if (active || trigger<0) {
 				String replacement = map.get(current);
 				if (replacement==null) {
 					active = false;
-					ret.appendCodePoint(current);
+					out.append(input, i, next);
 				} else {
-					ret.append(replacement);
+					out.append(replacement);
 				}
 			} else {
 				//leave as it is
-				ret.appendCodePoint(current);
+				out.append(input, i, next);
 			}
 			if (current==trigger) {
 				active = true;
 			}
+			i = next;
 		}
-		return ret.toString();
 	}
 
 }
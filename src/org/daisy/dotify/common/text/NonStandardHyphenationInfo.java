@@ -42,11 +42,22 @@ class NonStandardHyphenationInfo {
 	 * @return returns the length
 	 */
 	static int getHeadLength(String input, int offset) {
+		return getHeadLength(input.toCharArray(), offset, input.length());
+	}
+
+	/**
+	 * Gets the length of the characters from the offset up to the breakpoint (and including it, if it is a soft hyphen)
+	 * @param input the characters
+	 * @param offset the offset
+	 * @param end the end of the characters to search
+	 * @return returns the length
+	 */
+	static int getHeadLength(char[] input, int offset, int end) {
 		int charsCount = 0;
-		for (int i=offset; i<input.length(); i++) {
-			if (input.charAt(i)=='\u00ad') {
+		for (int i=offset; i<end; i++) {
+			if (input[i]=='\u00ad') {
 				return charsCount+1;
-			} else if (input.charAt(i)=='\u200b') {
+			} else if (input[i]=='\u200b') {
 				return charsCount;
 			} else {
 				charsCount++;
@@ -76,4 +87,33 @@ class NonStandardHyphenationInfo {
 		return ns.toString();
 	}
 
+	/**
+	 * Gets the replacement.
+	 * @return returns the replacement
+	 */
+	String getReplacement() {
+		return replacement;
+	}
+
+	/**
+	 * Gets the length of the segment that is replaced.
+	 * @return returns the length
+	 */
+	int getLength() {
+		return length;
+	}
+
+	/**
+	 * Gets the index of the soft hyphen or zero width space in the replacement.
+	 * @return returns the index, or -1 if there is none
+	 */
+	int getBreakIndex() {
+		for (int i=0; i<replacement.length(); i++) {
+			if (replacement.charAt(i)=='\u00ad' || replacement.charAt(i)=='\u200b') {
+				return i;
+			}
+		}
+		return -1;
+	}
+
 }
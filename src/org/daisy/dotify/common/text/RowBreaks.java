@@ -0,0 +1,146 @@
+package org.daisy.dotify.common.text;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <p>Provides the rows of a paragraph as positions in the original string, see
+ * {@link BreakPointHandler#breakAll(int[], boolean)}. The text of a row is
+ * only created when it is requested.</p>
+ *
+ * <p>The start of a row is the position of its first character and the end of a row
+ * is the position following its last character, excluding whitespace at the start and
+ * end of the row. Soft hyphens and zero width spaces within a row are not part of the
+ * text of the row. If a non-standard hyphenation rule is applied, the replaced characters
+ * belong to the row that was hyphenated, and the text of the rows before and after the
+ * break are the rows as hyphenated.</p>
+ *
+ * @author Joel Håkansson
+ */
+public final class RowBreaks {
+	private static final int HARD = 1;
+	private static final int DASH = 2;
+	private final char[] text;
+	private int[] starts;
+	private int[] ends;
+	private byte[] flags;
+	private int size;
+	// the text of the rows that were changed by non-standard hyphenation
+	private final Map<Integer, String> patched;
+
+	RowBreaks(char[] text) {
+		this.text = text;
+		this.starts = new int[16];
+		this.ends = new int[16];
+		this.flags = new byte[16];
+		this.size = 0;
+		this.patched = new HashMap<>();
+	}
+
+	void add(int start, int end, boolean hard, boolean dash, String head) {
+		if (size==starts.length) {
+			starts = Arrays.copyOf(starts, size*2);
+			ends = Arrays.copyOf(ends, size*2);
+			flags = Arrays.copyOf(flags, size*2);
+		}
+		starts[size] = start;
+		ends[size] = end;
+		flags[size] = (byte)((hard?HARD:0) | (dash?DASH:0));
+		if (head!=null) {
+			patched.put(size, head);
+		}
+		size++;
+	}
+
+	/**
+	 * Gets the number of rows.
+	 * @return returns the number of rows
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Gets the start position of a row in the original string.
+	 * @param row the row index
+	 * @return returns the start position
+	 * @throws IndexOutOfBoundsException if the row index is out of range
+	 */
+	public int getStart(int row) {
+		checkIndex(row);
+		return starts[row];
+	}
+
+	/**
+	 * Gets the end position (exclusive) of a row in the original string.
+	 * @param row the row index
+	 * @return returns the end position
+	 * @throws IndexOutOfBoundsException if the row index is out of range
+	 */
+	public int getEnd(int row) {
+		checkIndex(row);
+		return ends[row];
+	}
+
+	/**
+	 * Returns true if a break point could not be achieved with respect for
+	 * break point boundaries on the specified row.
+	 * @param row the row index
+	 * @return true if the row ends with a hard break, false otherwise
+	 * @throws IndexOutOfBoundsException if the row index is out of range
+	 */
+	public boolean isHardBreak(int row) {
+		checkIndex(row);
+		return (flags[row] & HARD)!=0;
+	}
+
+	/**
+	 * Returns true if a hyphen was added at the end of the specified row,
+	 * in other words if the row was broken at a soft hyphen.
+	 * @param row the row index
+	 * @return true if the row is hyphenated, false otherwise
+	 * @throws IndexOutOfBoundsException if the row index is out of range
+	 */
+	public boolean isHyphenated(int row) {
+		checkIndex(row);
+		return (flags[row] & DASH)!=0;
+	}
+
+	/**
+	 * Gets the text of a row, in the same way as {@link BreakPoint#getHead()}.
+	 * @param row the row index
+	 * @return returns the text of the row
+	 * @throws IndexOutOfBoundsException if the row index is out of range
+	 */
+	public String getHead(int row) {
+		checkIndex(row);
+		String ret = patched.get(row);
+		if (ret==null) {
+			ret = new TextSegment("", text, starts[row], ends[row], true, isHyphenated(row)?"-":"").toString();
+		}
+		return ret;
+	}
+
+	private void checkIndex(int row) {
+		if (row<0 || row>=size) {
+			throw new IndexOutOfBoundsException("Row: " + row + ", size: " + size);
+		}
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("RowBreaks [");
+		for (int i=0; i<size; i++) {
+			if (i>0) {
+				sb.append(", ");
+			}
+			sb.append(starts[i]).append('-').append(ends[i]);
+			if (isHardBreak(i)) {
+				sb.append(" hard");
+			}
+		}
+		return sb.append(']').toString();
+	}
+
+}
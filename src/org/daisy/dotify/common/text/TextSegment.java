@@ -0,0 +1,78 @@
+package org.daisy.dotify.common.text;
+
+/**
+ * <p>Provides a segment of a character array, with an optional prefix and suffix. Soft hyphens and zero width
+ * spaces can be removed from the segment. The characters are not copied until
+ * the segment is converted to a string, which happens at most once.</p>
+ *
+ * <p>The character array must not be modified once the segment has been created.</p>
+ *
+ * @author Joel Håkansson
+ */
+final class TextSegment implements CharSequence {
+	private final String prefix;
+	private final char[] chars;
+	private final int start;
+	private final int end;
+	private final boolean visibleOnly;
+	private final String suffix;
+	private String str;
+
+	/**
+	 * Creates a new text segment.
+	 * @param prefix the prefix, or an empty string
+	 * @param chars the characters
+	 * @param start the start index
+	 * @param end the end index (exclusive)
+	 * @param visibleOnly true if soft hyphens and zero width spaces should be removed, false otherwise
+	 * @param suffix the suffix, or an empty string. The suffix is never filtered.
+	 */
+	TextSegment(String prefix, char[] chars, int start, int end, boolean visibleOnly, String suffix) {
+		this.prefix = prefix;
+		this.chars = chars;
+		this.start = start;
+		this.end = end;
+		this.visibleOnly = visibleOnly;
+		this.suffix = suffix;
+		this.str = null;
+	}
+
+	@Override
+	public int length() {
+		return toString().length();
+	}
+
+	@Override
+	public char charAt(int index) {
+		return toString().charAt(index);
+	}
+
+	@Override
+	public CharSequence subSequence(int start, int end) {
+		return toString().subSequence(start, end);
+	}
+
+	@Override
+	public String toString() {
+		if (str==null) {
+			if (!visibleOnly) {
+				str = prefix.isEmpty()&&suffix.isEmpty()?new String(chars, start, end-start):prefix + new String(chars, start, end-start) + suffix;
+			} else {
+				StringBuilder sb = new StringBuilder(prefix.length()+end-start+suffix.length());
+				for (int i=0; i<prefix.length(); i++) {
+					if (!BreakPointHandler.isHidden(prefix.charAt(i))) {
+						sb.append(prefix.charAt(i));
+					}
+				}
+				for (int i=start; i<end; i++) {
+					if (!BreakPointHandler.isHidden(chars[i])) {
+						sb.append(chars[i]);
+					}
+				}
+				str = sb.append(suffix).toString();
+			}
+		}
+		return str;
+	}
+
+}
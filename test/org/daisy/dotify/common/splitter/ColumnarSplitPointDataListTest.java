@@ -0,0 +1,117 @@
+package org.daisy.dotify.common.splitter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class ColumnarSplitPointDataListTest {
+	DummySplitPoint c = new DummySplitPoint.Builder().breakable(false).skippable(false).size(1).build();
+	DummySplitPoint e = new DummySplitPoint.Builder().breakable(true).skippable(true).size(1).build();
+
+	@Test
+	public void testEmpty() {
+		ColumnarSplitPointDataList<SplitPointUnit> m = new ColumnarSplitPointDataList<>();
+		assertTrue(m.isEmpty());
+		assertTrue(ColumnarSplitPointDataList.emptyManager().isEmpty());
+	}
+
+	@Test
+	public void testTail() {
+		ColumnarSplitPointDataList<DummySplitPoint> m = new ColumnarSplitPointDataList<>(c, e, c);
+		ColumnarSplitPointDataList<DummySplitPoint> t = m.tail(1);
+		assertFalse(t.isEmpty());
+		assertEquals(2, t.getSize(10));
+		assertEquals(Arrays.asList(e, c), t.getRemaining());
+		assertTrue(t.isBreakable(0));
+		assertFalse(t.isBreakable(1));
+		assertEquals(0, t.previousBreakable(1));
+		assertEquals(-1, m.tail(2).previousBreakable(0));
+		assertTrue(m.tail(3).isEmpty());
+	}
+
+	@Test
+	public void testSplit_01() {
+		SplitPointHandler<DummySplitPoint, ColumnarSplitPointDataList<DummySplitPoint>> bph = new SplitPointHandler<>();
+		DummySplitPoint t = new DummySplitPoint.Builder().breakable(true).skippable(false).size(1).build();
+		SplitPoint<DummySplitPoint, ColumnarSplitPointDataList<DummySplitPoint>> bp = bph.split(5, new ColumnarSplitPointDataList<>(c, c, c, c, t, c, c, c, c, c));
+		assertEquals(Arrays.asList(c, c, c, c, t), bp.getHead());
+		assertEquals(Arrays.asList(c, c, c, c, c), bp.getTail().getRemaining());
+		assertFalse(bp.isHardBreak());
+	}
+
+	@Test
+	public void testSplit_02() {
+		SplitPointHandler<DummySplitPoint, ColumnarSplitPointDataList<DummySplitPoint>> bph = new SplitPointHandler<>();
+		DummySplitPoint x = new DummySplitPoint.Builder().breakable(true).skippable(true).collapsable(true).size(2).build();
+		DummySplitPoint y = new DummySplitPoint.Builder().breakable(true).skippable(true).collapsable(true).size(4).build();
+		SplitPoint<DummySplitPoint, ColumnarSplitPointDataList<DummySplitPoint>> bp = bph.split(6, new ColumnarSplitPointDataList<>(c, x, y, c));
+		assertEquals(Arrays.asList(c, y, c), bp.getHead());
+		assertEquals(Arrays.asList(x), bp.getDiscarded());
+	}
+
+	@Test
+	public void testCompareWithList() {
+		Random rnd = new Random(4711);
+		for (int r=0; r<200; r++) {
+			Map<String, DummySplitPoint> suppMap = new HashMap<>();
+			for (int i=0; i<8; i++) {
+				suppMap.put("s"+i, new DummySplitPoint.Builder().breakable(true).size(rnd.nextInt(3)).build());
+			}
+			Supplements<DummySplitPoint> supps = new Supplements<DummySplitPoint>() {
+				@Override
+				public DummySplitPoint get(String id) {
+					return suppMap.get(id);
+				}
+				@Override
+				public double getOverhead() {
+					return 1;
+				}
+			};
+			List<DummySplitPoint> units = new ArrayList<>();
+			for (int i=0; i<60; i++) {
+				DummySplitPoint.Builder b = new DummySplitPoint.Builder()
+						.breakable(rnd.nextInt(3)==0)
+						.skippable(rnd.nextInt(4)==0)
+						.collapsable(rnd.nextInt(4)==0)
+						.size(rnd.nextInt(4)/2f);
+				if (rnd.nextInt(3)==0) {
+					b.minSize(rnd.nextInt(4)/2f);
+				}
+				if (r%2==0 && rnd.nextInt(4)==0) {
+					b.supplementID("s"+rnd.nextInt(10));
+				}
+				units.add(b.build());
+			}
+			SplitPointDataList<DummySplitPoint> list = new SplitPointDataList<>(units, supps);
+			ColumnarSplitPointDataList<DummySplitPoint> columnar = new ColumnarSplitPointDataList<>(units, supps);
+			SplitPointHandler<DummySplitPoint, SplitPointDataList<DummySplitPoint>> h1 = new SplitPointHandler<>();
+			SplitPointHandler<DummySplitPoint, ColumnarSplitPointDataList<DummySplitPoint>> h2 = new SplitPointHandler<>();
+			while (!list.isEmpty()) {
+				float breakPoint = 1 + rnd.nextInt(12);
+				StandardSplitOption[] opts = rnd.nextBoolean()?
+						new StandardSplitOption[]{StandardSplitOption.ALLOW_FORCE}:
+						new StandardSplitOption[]{StandardSplitOption.ALLOW_FORCE, StandardSplitOption.NO_LAST_UNIT_SIZE};
+				SplitPoint<DummySplitPoint, SplitPointDataList<DummySplitPoint>> expected = h1.split(breakPoint, list, opts);
+				SplitPoint<DummySplitPoint, ColumnarSplitPointDataList<DummySplitPoint>> actual = h2.split(breakPoint, columnar, opts);
+				assertEquals(expected.getHead(), actual.getHead());
+				assertEquals(expected.getSupplements(), actual.getSupplements());
+				assertEquals(expected.getDiscarded(), actual.getDiscarded());
+				assertEquals(expected.isHardBreak(), actual.isHardBreak());
+				assertEquals(expected.getTail().getRemaining(), actual.getTail().getRemaining());
+				list = expected.getTail();
+				columnar = actual.getTail();
+			}
+		}
+	}
+
+}
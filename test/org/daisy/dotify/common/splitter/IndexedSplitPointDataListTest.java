@@ -0,0 +1,187 @@
+package org.daisy.dotify.common.splitter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class IndexedSplitPointDataListTest {
+	DummySplitPoint c = new DummySplitPoint.Builder().breakable(false).skippable(false).size(1).build();
+	DummySplitPoint e = new DummySplitPoint.Builder().breakable(true).skippable(true).size(1).build();
+
+	@Test
+	public void testEmpty() {
+		IndexedSplitPointDataList<SplitPointUnit> m = new IndexedSplitPointDataList<>();
+		assertTrue(m.isEmpty());
+		assertTrue(IndexedSplitPointDataList.emptyManager().isEmpty());
+	}
+
+	@Test
+	public void testTail() {
+		IndexedSplitPointDataList<DummySplitPoint> m = new IndexedSplitPointDataList<>(c, e, c);
+		IndexedSplitPointDataList<DummySplitPoint> t = m.tail(1);
+		assertFalse(t.isEmpty());
+		assertEquals(2, t.getSize(10));
+		assertEquals(Arrays.asList(e, c), t.getRemaining());
+		assertTrue(m.tail(3).isEmpty());
+	}
+
+	@Test
+	public void testSearchable_01() {
+		DummySplitPoint x = new DummySplitPoint.Builder().breakable(true).skippable(true).collapsable(true).size(2).build();
+		IndexedSplitPointDataList<DummySplitPoint> m = new IndexedSplitPointDataList<>(c, x, x, c);
+		assertTrue(m.isSearchable());
+		assertTrue(m.tail(1).isSearchable());
+		// starts in the middle of a collapse group
+		assertFalse(m.tail(2).isSearchable());
+		assertTrue(m.tail(3).isSearchable());
+	}
+
+	@Test
+	public void testSearchable_02() {
+		final DummySplitPoint s1 = new DummySplitPoint.Builder().size(1).build();
+		Supplements<DummySplitPoint> supps = id -> "s1".equals(id)?s1:null;
+		DummySplitPoint c1 = new DummySplitPoint.Builder().breakable(true).size(1).supplementID("s1").build();
+		IndexedSplitPointDataList<DummySplitPoint> m = new IndexedSplitPointDataList<>(Arrays.asList(c1, c, c1, c), supps);
+		assertTrue(m.isSearchable());
+		// s1 is referenced both before and after the start
+		assertFalse(m.tail(1).isSearchable());
+		assertFalse(m.tail(2).isSearchable());
+		assertTrue(m.tail(3).isSearchable());
+	}
+
+	@Test
+	public void testSearchable_03() {
+		DummySplitPoint half = new DummySplitPoint.Builder().breakable(true).size(0.5f).build();
+		DummySplitPoint tenth = new DummySplitPoint.Builder().breakable(true).size(0.1f).build();
+		DummySplitPoint large = new DummySplitPoint.Builder().breakable(true).size(1<<24).build();
+		assertTrue(new IndexedSplitPointDataList<>(c, half, c).isSearchable());
+		// sums that are rounded in single precision
+		assertFalse(new IndexedSplitPointDataList<>(c, tenth, c).isSearchable());
+		assertFalse(new IndexedSplitPointDataList<>(c, large).isSearchable());
+		assertEquals(0, SplitPointSizeIndex.lowestBit(1));
+		assertEquals(-1, SplitPointSizeIndex.lowestBit(1.5f));
+		assertEquals(3, SplitPointSizeIndex.lowestBit(24));
+		assertEquals(-149, SplitPointSizeIndex.lowestBit(Float.MIN_VALUE));
+		assertEquals(Integer.MAX_VALUE, SplitPointSizeIndex.lowestBit(0));
+	}
+
+	@Test
+	public void testSplit_01() {
+		SplitPointHandler<DummySplitPoint, IndexedSplitPointDataList<DummySplitPoint>> bph = new SplitPointHandler<>();
+		DummySplitPoint t = new DummySplitPoint.Builder().breakable(true).skippable(false).size(1).build();
+		SplitPoint<DummySplitPoint, IndexedSplitPointDataList<DummySplitPoint>> bp = bph.split(5, new IndexedSplitPointDataList<>(c, c, c, c, t, c, c, c, c, c));
+		assertEquals(Arrays.asList(c, c, c, c, t), bp.getHead());
+		assertEquals(Arrays.asList(c, c, c, c, c), bp.getTail().getRemaining());
+		assertFalse(bp.isHardBreak());
+	}
+
+	@Test
+	public void testSplit_02() {
+		SplitPointHandler<DummySplitPoint, IndexedSplitPointDataList<DummySplitPoint>> bph = new SplitPointHandler<>();
+		DummySplitPoint x = new DummySplitPoint.Builder().breakable(true).skippable(true).collapsable(true).size(2).build();
+		DummySplitPoint y = new DummySplitPoint.Builder().breakable(true).skippable(true).collapsable(true).size(4).build();
+		SplitPoint<DummySplitPoint, IndexedSplitPointDataList<DummySplitPoint>> bp = bph.split(6, new IndexedSplitPointDataList<>(c, x, y, c));
+		assertEquals(Arrays.asList(c, y, c), bp.getHead());
+		assertEquals(Arrays.asList(x), bp.getDiscarded());
+	}
+
+	@Test
+	public void testCompareWithList() {
+		Random rnd = new Random(4711);
+		for (int r=0; r<200; r++) {
+			Map<String, DummySplitPoint> suppMap = new HashMap<>();
+			for (int i=0; i<8; i++) {
+				suppMap.put("s"+i, new DummySplitPoint.Builder().breakable(true).size(rnd.nextInt(3)).build());
+			}
+			Supplements<DummySplitPoint> supps = new Supplements<DummySplitPoint>() {
+				@Override
+				public DummySplitPoint get(String id) {
+					return suppMap.get(id);
+				}
+				@Override
+				public double getOverhead() {
+					return 1;
+				}
+			};
+			List<DummySplitPoint> units = randomUnits(rnd, 60, r%2==0);
+			SplitPointDataList<DummySplitPoint> list = new SplitPointDataList<>(units, supps);
+			IndexedSplitPointDataList<DummySplitPoint> indexed = new IndexedSplitPointDataList<>(units, supps);
+			SplitPointHandler<DummySplitPoint, SplitPointDataList<DummySplitPoint>> h1 = new SplitPointHandler<>();
+			SplitPointHandler<DummySplitPoint, IndexedSplitPointDataList<DummySplitPoint>> h2 = new SplitPointHandler<>();
+			while (!list.isEmpty()) {
+				float breakPoint = 1 + rnd.nextInt(12);
+				StandardSplitOption[] opts = rnd.nextBoolean()?
+						new StandardSplitOption[]{StandardSplitOption.ALLOW_FORCE}:
+						new StandardSplitOption[]{StandardSplitOption.ALLOW_FORCE, StandardSplitOption.NO_LAST_UNIT_SIZE};
+				SplitPoint<DummySplitPoint, SplitPointDataList<DummySplitPoint>> expected = h1.split(breakPoint, list, opts);
+				SplitPoint<DummySplitPoint, IndexedSplitPointDataList<DummySplitPoint>> actual = h2.split(breakPoint, indexed, opts);
+				assertEquals(expected.getHead(), actual.getHead());
+				assertEquals(expected.getSupplements(), actual.getSupplements());
+				assertEquals(expected.getDiscarded(), actual.getDiscarded());
+				assertEquals(expected.isHardBreak(), actual.isHardBreak());
+				assertEquals(expected.getTail().getRemaining(), actual.getTail().getRemaining());
+				list = expected.getTail();
+				indexed = actual.getTail();
+			}
+		}
+	}
+
+	@Test
+	public void testCompareWithListAtBoundary() {
+		// break points are set to the sum of the unit sizes, accumulated in float from the offset,
+		// so that rounding decides if the last unit fits
+		float[] sizes = {0.1f, 0.2f, 0.3f, 1f/3, 0.7f, 1.1f, 2.5f};
+		Random rnd = new Random(4711);
+		for (int r=0; r<500; r++) {
+			List<DummySplitPoint> units = new ArrayList<>();
+			for (int i=0; i<40; i++) {
+				units.add(new DummySplitPoint.Builder().breakable(true).skippable(false).size(sizes[rnd.nextInt(sizes.length)]).build());
+			}
+			int offset = rnd.nextInt(20);
+			SplitPointDataList<DummySplitPoint> list = new SplitPointDataList<>(units).tail(offset);
+			IndexedSplitPointDataList<DummySplitPoint> indexed = new IndexedSplitPointDataList<>(units).tail(offset);
+			int count = 1+rnd.nextInt(units.size()-offset-1);
+			float breakPoint = 0;
+			for (int i=offset; i<offset+count; i++) {
+				breakPoint += units.get(i).getUnitSize();
+			}
+			SplitPointHandler<DummySplitPoint, SplitPointDataList<DummySplitPoint>> h1 = new SplitPointHandler<>();
+			SplitPointHandler<DummySplitPoint, IndexedSplitPointDataList<DummySplitPoint>> h2 = new SplitPointHandler<>();
+			SplitPointSpecification expected = h1.find(breakPoint, list);
+			SplitPointSpecification actual = h2.find(breakPoint, indexed);
+			assertEquals(expected.getType(), actual.getType());
+			assertEquals(expected.getIndex(), actual.getIndex());
+			assertEquals(count, actual.getIndex());
+		}
+	}
+
+	private static List<DummySplitPoint> randomUnits(Random rnd, int count, boolean withSupplements) {
+		List<DummySplitPoint> ret = new ArrayList<>();
+		for (int i=0; i<count; i++) {
+			DummySplitPoint.Builder b = new DummySplitPoint.Builder()
+					.breakable(rnd.nextInt(3)==0)
+					.skippable(rnd.nextInt(4)==0)
+					.collapsable(rnd.nextInt(4)==0)
+					.size(rnd.nextInt(4)/2f);
+			if (rnd.nextInt(3)==0) {
+				b.minSize(rnd.nextInt(4)/2f);
+			}
+			if (withSupplements && rnd.nextInt(4)==0) {
+				b.supplementID("s"+rnd.nextInt(10));
+			}
+			ret.add(b.build());
+		}
+		return ret;
+	}
+
+}
@@ -0,0 +1,106 @@
+package org.daisy.dotify.common.splitter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class LazySplitPointDataSourceTest {
+	DummySplitPoint c = new DummySplitPoint.Builder().breakable(false).skippable(false).size(1).build();
+	DummySplitPoint e = new DummySplitPoint.Builder().breakable(true).skippable(true).size(1).build();
+
+	@Test
+	public void testEmpty() {
+		assertTrue(new LazySplitPointDataSource<DummySplitPoint>(Collections.emptyIterator()).isEmpty());
+		assertTrue(LazySplitPointDataSource.emptyManager().isEmpty());
+		assertEquals(0, LazySplitPointDataSource.emptyManager().getSize(10));
+	}
+
+	@Test
+	public void testChunks() {
+		LazySplitPointDataSource<DummySplitPoint> m = new LazySplitPointDataSource<>(Arrays.asList(c, e, c, c, e).iterator(), null, 2);
+		assertFalse(m.isEmpty());
+		assertEquals(5, m.getSize(10));
+		assertEquals(3, m.getSize(3));
+		assertEquals(e, m.get(4));
+		assertTrue(m.hasElementAt(4));
+		assertFalse(m.hasElementAt(5));
+		assertEquals(Arrays.asList(c, e, c), m.head(3));
+		assertEquals(Arrays.asList(e, c, c, e), m.tail(1).getRemaining());
+		assertEquals(Arrays.asList(c, e), m.tail(2).tail(1).getRemaining());
+		assertTrue(m.tail(5).isEmpty());
+	}
+
+	@Test (expected=IndexOutOfBoundsException.class)
+	public void testTailOutOfBounds() {
+		new LazySplitPointDataSource<>(Arrays.asList(c, e, c).iterator(), null, 2).tail(4);
+	}
+
+	@Test
+	public void testLazy() {
+		List<DummySplitPoint> units = new ArrayList<>();
+		for (int i=0; i<1000; i++) {
+			units.add(i%5==4?e:c);
+		}
+		int[] read = new int[1];
+		Iterator<DummySplitPoint> it = units.iterator();
+		Iterator<DummySplitPoint> counting = new Iterator<DummySplitPoint>() {
+			@Override
+			public boolean hasNext() {
+				return it.hasNext();
+			}
+			@Override
+			public DummySplitPoint next() {
+				read[0]++;
+				return it.next();
+			}
+		};
+		LazySplitPointDataSource<DummySplitPoint> data = new LazySplitPointDataSource<>(counting, null, 16);
+		assertEquals(0, read[0]);
+		SplitPoint<DummySplitPoint, LazySplitPointDataSource<DummySplitPoint>> sp = new SplitPointHandler<DummySplitPoint, LazySplitPointDataSource<DummySplitPoint>>().split(5, data);
+		assertEquals(Arrays.asList(c, c, c, c), sp.getHead());
+		assertTrue(read[0]<=32);
+	}
+
+	@Test
+	public void testCompareWithList() {
+		Random rnd = new Random(4711);
+		for (int r=0; r<100; r++) {
+			List<DummySplitPoint> units = new ArrayList<>();
+			for (int i=0; i<60; i++) {
+				units.add(new DummySplitPoint.Builder()
+						.breakable(rnd.nextInt(3)==0)
+						.skippable(rnd.nextInt(4)==0)
+						.collapsable(rnd.nextInt(4)==0)
+						.size(1+rnd.nextInt(2))
+						.build());
+			}
+			SplitPointDataList<DummySplitPoint> list = new SplitPointDataList<>(units);
+			LazySplitPointDataSource<DummySplitPoint> lazy = new LazySplitPointDataSource<>(units.iterator(), null, 1+rnd.nextInt(8));
+			SplitPointHandler<DummySplitPoint, SplitPointDataList<DummySplitPoint>> h1 = new SplitPointHandler<>();
+			SplitPointHandler<DummySplitPoint, LazySplitPointDataSource<DummySplitPoint>> h2 = new SplitPointHandler<>();
+			while (!list.isEmpty()) {
+				float breakPoint = 1 + rnd.nextInt(12);
+				SplitPoint<DummySplitPoint, SplitPointDataList<DummySplitPoint>> expected = h1.split(breakPoint, list, StandardSplitOption.ALLOW_FORCE);
+				SplitPoint<DummySplitPoint, LazySplitPointDataSource<DummySplitPoint>> actual = h2.split(breakPoint, lazy, StandardSplitOption.ALLOW_FORCE);
+				assertEquals(expected.getHead(), actual.getHead());
+				assertEquals(expected.getDiscarded(), actual.getDiscarded());
+				assertEquals(expected.isHardBreak(), actual.isHardBreak());
+				assertEquals(expected.getTail().getRemaining(), actual.getTail().getRemaining());
+				list = expected.getTail();
+				lazy = actual.getTail();
+			}
+			assertTrue(lazy.isEmpty());
+		}
+	}
+
+}
@@ -0,0 +1,62 @@
+package org.daisy.dotify.common.splitter;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class ParallelSplitPointFinderTest {
+	DummySplitPoint c = new DummySplitPoint.Builder().breakable(false).skippable(false).size(1).build();
+	DummySplitPoint b = new DummySplitPoint.Builder().breakable(true).skippable(false).size(1).build();
+
+	@Test
+	public void testFindAll() {
+		SplitPointDataList<DummySplitPoint> data = new SplitPointDataList<>(b, c, b, c, c, b, c);
+		ParallelSplitPointFinder<DummySplitPoint, SplitPointDataList<DummySplitPoint>> finder = new ParallelSplitPointFinder<>();
+		List<SplitPointCandidate<DummySplitPoint>> candidates = new ArrayList<>();
+		for (int i=1; i<=7; i++) {
+			candidates.add(new SplitPointCandidate<>(i));
+		}
+		List<SplitPointSpecification> specs = finder.findAll(data, candidates);
+		SplitPointHandler<DummySplitPoint, SplitPointDataList<DummySplitPoint>> bph = new SplitPointHandler<>();
+		assertEquals(7, specs.size());
+		for (int i=0; i<7; i++) {
+			SplitPoint<DummySplitPoint, SplitPointDataList<DummySplitPoint>> expected = bph.split(i+1, data);
+			SplitPoint<DummySplitPoint, SplitPointDataList<DummySplitPoint>> actual = bph.split(specs.get(i), data);
+			assertEquals(expected.getHead(), actual.getHead());
+			assertEquals(expected.getTail().getRemaining(), actual.getTail().getRemaining());
+		}
+	}
+
+	@Test
+	public void testFind() {
+		SplitPointDataList<DummySplitPoint> data = new SplitPointDataList<>(b, c, b, c, c, b, c);
+		ParallelSplitPointFinder<DummySplitPoint, SplitPointDataList<DummySplitPoint>> finder = new ParallelSplitPointFinder.Builder<DummySplitPoint, SplitPointDataList<DummySplitPoint>>()
+				.pool(new ForkJoinPool(2))
+				.build();
+		List<SplitPointCandidate<DummySplitPoint>> candidates = Arrays.asList(
+				new SplitPointCandidate<>(4),
+				new SplitPointCandidate<>(2, StandardSplitOption.ALLOW_FORCE),
+				new SplitPointCandidate<>(5, (units, index, limit)->index, StandardSplitOption.ALLOW_FORCE));
+		// prefer the longest page
+		Comparator<SplitPoint<DummySplitPoint, SplitPointDataList<DummySplitPoint>>> longest = Comparator.comparingInt(sp->sp.getHead().size());
+		SplitPointSpecification spec = finder.find(data, candidates, longest);
+		assertEquals(Arrays.asList(b, c, b), new SplitPointHandler<DummySplitPoint, SplitPointDataList<DummySplitPoint>>().split(spec, data).getHead());
+		// prefer the shortest page
+		spec = finder.find(data, candidates, longest.reversed());
+		assertEquals(Arrays.asList(b), new SplitPointHandler<DummySplitPoint, SplitPointDataList<DummySplitPoint>>().split(spec, data).getHead());
+	}
+
+	@Test (expected=IllegalArgumentException.class)
+	public void testNoCandidates() {
+		new ParallelSplitPointFinder<DummySplitPoint, SplitPointDataList<DummySplitPoint>>().find(new SplitPointDataList<>(b), Collections.emptyList(), Comparator.comparingInt(sp->sp.getHead().size()));
+	}
+
+}
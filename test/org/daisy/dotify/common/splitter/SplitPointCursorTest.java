@@ -0,0 +1,75 @@
+package org.daisy.dotify.common.splitter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class SplitPointCursorTest {
+	DummySplitPoint c = new DummySplitPoint.Builder().breakable(false).skippable(false).size(1).build();
+	DummySplitPoint e = new DummySplitPoint.Builder().breakable(true).skippable(true).size(1).build();
+
+	@Test
+	public void testNext() {
+		SplitPointHandler<DummySplitPoint, SplitPointDataList<DummySplitPoint>> bph = new SplitPointHandler<>();
+		SplitPointDataList<DummySplitPoint> data = new SplitPointDataList<>(c, e, c, c, e, c, c);
+		SplitPointCursor<DummySplitPoint, SplitPointDataList<DummySplitPoint>> cursor = new SplitPointCursor<>(bph, data);
+		assertTrue(cursor.hasNext());
+		List<List<DummySplitPoint>> pages = new ArrayList<>();
+		while (cursor.hasNext()) {
+			pages.add(cursor.next(3).getHead());
+		}
+		assertEquals(Arrays.asList(
+				Arrays.asList(c),
+				Arrays.asList(c, c),
+				Arrays.asList(c, c)
+		), pages);
+		assertEquals(3, cursor.getPageCount());
+		assertFalse(cursor.hasNext());
+	}
+
+	@Test
+	public void testMarkReset() {
+		SplitPointHandler<DummySplitPoint, SplitPointDataList<DummySplitPoint>> bph = new SplitPointHandler<>();
+		SplitPointDataList<DummySplitPoint> data = new SplitPointDataList<>(c, e, c, c, e, c, c);
+		SplitPointCursor<DummySplitPoint, SplitPointDataList<DummySplitPoint>> cursor = new SplitPointCursor<>(bph, data);
+		cursor.next(2);
+		cursor.mark();
+		SplitPointDataList<DummySplitPoint> marked = cursor.getData();
+		cursor.next(3);
+		cursor.mark();
+		cursor.next(3);
+		assertEquals(2, cursor.getMarkCount());
+		// back to the second mark
+		cursor.reset();
+		assertEquals(2, cursor.getPageCount());
+		cursor.next(3);
+		cursor.reset();
+		assertEquals(2, cursor.getPageCount());
+		// back to the first mark
+		cursor.unmark();
+		cursor.reset();
+		assertSame(marked, cursor.getData());
+		assertEquals(1, cursor.getPageCount());
+		// try again with a larger page
+		assertEquals(Arrays.asList(c, c, e, c, c), cursor.next(5).getHead());
+		// back to the start
+		cursor.unmark();
+		cursor.reset();
+		assertSame(data, cursor.getData());
+		assertEquals(0, cursor.getPageCount());
+	}
+
+	@Test(expected=IllegalStateException.class)
+	public void testUnmark() {
+		new SplitPointCursor<>(new SplitPointHandler<DummySplitPoint, SplitPointDataList<DummySplitPoint>>(), new SplitPointDataList<>(c)).unmark();
+	}
+
+}
@@ -0,0 +1,114 @@
+package org.daisy.dotify.common.splitter;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class SplitPointHandlerStressTest {
+	private static final int THREADS = 8;
+	private static final int TASKS = 64;
+
+	@Test
+	public void testShared() throws Exception {
+		assertConcurrent(SplitPointHandler.getShared());
+	}
+
+	@Test
+	public void testCached() throws Exception {
+		assertConcurrent(new SplitPointHandler.Builder<DummySplitPoint, SplitPointDataList<DummySplitPoint>>().cacheSize(16).build());
+	}
+
+	private static void assertConcurrent(SplitPointHandler<DummySplitPoint, SplitPointDataList<DummySplitPoint>> shared) throws Exception {
+		List<SplitPointDataList<DummySplitPoint>> inputs = new ArrayList<>();
+		List<List<List<DummySplitPoint>>> expected = new ArrayList<>();
+		Random rnd = new Random(4711);
+		for (int i=0; i<TASKS; i++) {
+			// a few inputs are shared by several tasks, so that the cache is used
+			SplitPointDataList<DummySplitPoint> data = i%4==0||inputs.isEmpty()?createData(rnd):inputs.get(rnd.nextInt(inputs.size()));
+			inputs.add(data);
+			expected.add(split(new SplitPointHandler<>(), data));
+		}
+		ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+		try {
+			List<Future<List<List<DummySplitPoint>>>> actual = new ArrayList<>();
+			for (int r=0; r<4; r++) {
+				for (SplitPointDataList<DummySplitPoint> data : inputs) {
+					Callable<List<List<DummySplitPoint>>> task = ()->split(shared, data);
+					actual.add(pool.submit(task));
+				}
+			}
+			for (int i=0; i<actual.size(); i++) {
+				assertEquals(expected.get(i%TASKS), actual.get(i).get());
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	private static SplitPointDataList<DummySplitPoint> createData(Random rnd) {
+		Map<String, DummySplitPoint> suppMap = new HashMap<>();
+		for (int i=0; i<4; i++) {
+			suppMap.put("s"+i, new DummySplitPoint.Builder().size(rnd.nextInt(3)).build());
+		}
+		List<DummySplitPoint> units = new ArrayList<>();
+		for (int i=0; i<200; i++) {
+			DummySplitPoint.Builder b = new DummySplitPoint.Builder()
+					.breakable(rnd.nextInt(3)==0)
+					.skippable(rnd.nextInt(4)==0)
+					.collapsable(rnd.nextInt(4)==0)
+					.size(1+rnd.nextInt(2));
+			if (rnd.nextInt(3)==0) {
+				b.supplementID("s"+rnd.nextInt(5));
+			}
+			units.add(b.build());
+		}
+		return new SplitPointDataList<>(units, id->suppMap.get(id));
+	}
+
+	/**
+	 * Splits the data into pages, alternating between the different ways of splitting.
+	 * The cost function also splits data, using the same handler.
+	 */
+	private static List<List<DummySplitPoint>> split(SplitPointHandler<DummySplitPoint, SplitPointDataList<DummySplitPoint>> bph, SplitPointDataList<DummySplitPoint> data) {
+		List<List<DummySplitPoint>> ret = new ArrayList<>();
+		for (int page=0; !data.isEmpty(); page++) {
+			float breakPoint = 4+page%7;
+			SplitPointDataList<DummySplitPoint> current = data;
+			SplitPointCost<DummySplitPoint> cost = (units, index, limit)->{
+				SplitPointDataList<DummySplitPoint> rest = current.tail(index);
+				return (units.get(index).isBreakable()?1:2)*limit-index + bph.split(1, rest).getHead().size();
+			};
+			SplitPoint<DummySplitPoint, SplitPointDataList<DummySplitPoint>> sp;
+			switch (page%4) {
+				case 0:
+					sp = bph.split(breakPoint, data, StandardSplitOption.ALLOW_FORCE);
+					break;
+				case 1:
+					sp = bph.split(breakPoint, data, cost, StandardSplitOption.ALLOW_FORCE);
+					break;
+				case 2:
+					sp = bph.split(bph.find(breakPoint, data, StandardSplitOption.ALLOW_FORCE), data);
+					break;
+				default:
+					sp = bph.split(bph.find(breakPoint, data, cost, true, StandardSplitOption.ALLOW_FORCE), data);
+			}
+			ret.add(sp.getHead());
+			ret.add(sp.getSupplements());
+			ret.add(sp.getDiscarded());
+			data = sp.getTail();
+		}
+		return ret;
+	}
+
+}
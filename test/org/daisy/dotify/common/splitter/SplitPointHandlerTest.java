@@ -1,10 +1,20 @@
 package org.daisy.dotify.common.splitter;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.daisy.dotify.common.collection.SplitList;
 import org.daisy.dotify.common.splitter.SplitPoint;
@@ -71,6 +81,536 @@ public class SplitPointHandlerTest {
 		assertTrue(bp.isHardBreak());
 	}
 	
+	@Test
+	public void testBoundedCost_01() {
+		DummySplitPoint b = new DummySplitPoint.Builder().breakable(true).skippable(false).size(1).build();
+		int[] calls = new int[1];
+		SplitPoint<DummySplitPoint, SplitPointDataList<DummySplitPoint>> bp = SplitPointHandler.split(4, Arrays.asList(b, b, b, b, b, b), new BoundedSplitPointCost<DummySplitPoint>(){
+			@Override
+			public double getCost(SplitPointDataSource<DummySplitPoint, ?> units, int index, int breakpoint) {
+				calls[0]++;
+				return breakpoint-index;
+			}
+			@Override
+			public double getMinimumCost(SplitPointDataSource<DummySplitPoint, ?> units, int index, int breakpoint) {
+				return breakpoint-index;
+			}});
+		assertEquals(Arrays.asList(b, b, b, b), bp.getHead());
+		assertEquals(Arrays.asList(b, b), bp.getTail().getRemaining());
+		assertEquals(1, calls[0]);
+	}
+
+	@Test
+	public void testFindBreakpointBefore() {
+		Random rnd = new Random(4711);
+		for (int r=0; r<500; r++) {
+			List<DummySplitPoint> units = new ArrayList<>();
+			int size = 1 + rnd.nextInt(20);
+			double[] values = new double[size];
+			for (int i=0; i<size; i++) {
+				units.add(new DummySplitPoint.Builder().breakable(rnd.nextInt(4)==0).size(1).build());
+				// few distinct values to test ties
+				values[i] = rnd.nextInt(5)==0?Double.MAX_VALUE:rnd.nextInt(4);
+			}
+			SplitPointDataList<DummySplitPoint> data = new SplitPointDataList<>(units);
+			int strPos = rnd.nextInt(size);
+			SplitPointCost<DummySplitPoint> defaultCost = SplitPointHandler.defaultCost();
+			assertFindBreakpointBefore(data, strPos, defaultCost);
+			assertFindBreakpointBefore(data, strPos, (u, index, limit)->defaultCost.getCost(u, index, limit));
+			assertFindBreakpointBefore(data, strPos, (u, index, limit)->values[index]);
+			assertFindBreakpointBefore(data, strPos, new BoundedSplitPointCost<DummySplitPoint>() {
+				@Override
+				public double getCost(SplitPointDataSource<DummySplitPoint, ?> u, int index, int limit) {
+					return values[index];
+				}
+				@Override
+				public double getMinimumCost(SplitPointDataSource<DummySplitPoint, ?> u, int index, int limit) {
+					double min = Double.POSITIVE_INFINITY;
+					for (int i=0; i<=index; i++) {
+						min = Math.min(min, values[i]);
+					}
+					return min;
+				}
+			});
+		}
+	}
+
+	private static void assertFindBreakpointBefore(SplitPointDataList<DummySplitPoint> data, int strPos, SplitPointCost<DummySplitPoint> cost) {
+		// forward scan, without any shortcuts
+		int bestBreakable = -1;
+		int bestSplitPoint = strPos;
+		double currentCost = Double.MAX_VALUE;
+		double currentBreakableCost = Double.MAX_VALUE;
+		for (int index=0; index<=strPos; index++) {
+			double c = cost.getCost(data, index, strPos);
+			if (c<currentCost) {
+				bestSplitPoint = index;
+				currentCost = c;
+			}
+			if (c<currentBreakableCost && data.get(index).isBreakable()) {
+				bestBreakable = index;
+				currentBreakableCost = c;
+			}
+		}
+		long actual = SplitPointHandler.findBreakpointBefore(data, strPos, cost);
+		assertEquals(bestBreakable, SplitPointHandler.bestBreakable(actual));
+		assertEquals(bestSplitPoint, SplitPointHandler.bestSplitPoint(actual));
+	}
+
+	@Test
+	public void testSplitAll_01() {
+		DummySplitPoint b = new DummySplitPoint.Builder().breakable(true).skippable(false).size(1).build();
+		SplitPointHandler<DummySplitPoint, SplitPointDataList<DummySplitPoint>> bph = new SplitPointHandler<>();
+		List<SplitPoint<DummySplitPoint, SplitPointDataList<DummySplitPoint>>> pages = bph.splitAll(
+				Arrays.asList(2f, 3f, 3f, 3f).iterator(), new SplitPointDataList<>(b, c, b, c, e, b, c)).collect(Collectors.toList());
+		assertEquals(3, pages.size());
+		assertEquals(Arrays.asList(b), pages.get(0).getHead());
+		assertEquals(Arrays.asList(c, b, c), pages.get(1).getHead());
+		assertEquals(Arrays.asList(e), pages.get(1).getDiscarded());
+		assertEquals(Arrays.asList(b, c), pages.get(1).getTail().getRemaining());
+		assertEquals(Arrays.asList(b, c), pages.get(2).getHead());
+		assertTrue(pages.get(2).getTail().isEmpty());
+	}
+
+	@Test
+	public void testSplitAll_02() {
+		// stops when there are no more break points
+		SplitPointHandler<DummySplitPoint, SplitPointDataList<DummySplitPoint>> bph = new SplitPointHandler<>();
+		List<SplitPoint<DummySplitPoint, SplitPointDataList<DummySplitPoint>>> pages = bph.splitAll(
+				Arrays.asList(2f).iterator(), new SplitPointDataList<>(c, c, c, c), StandardSplitOption.ALLOW_FORCE).collect(Collectors.toList());
+		assertEquals(1, pages.size());
+		assertEquals(Arrays.asList(c, c), pages.get(0).getTail().getRemaining());
+	}
+
+	@Test
+	public void testSplitAll_03() {
+		// stops when nothing fits
+		SplitPointHandler<DummySplitPoint, SplitPointDataList<DummySplitPoint>> bph = new SplitPointHandler<>();
+		List<SplitPoint<DummySplitPoint, SplitPointDataList<DummySplitPoint>>> pages = bph.splitAll(
+				Stream.generate(()->2f).iterator(), new SplitPointDataList<>(c, c, c, c)).collect(Collectors.toList());
+		assertEquals(1, pages.size());
+		assertEquals(Arrays.asList(), pages.get(0).getHead());
+		assertEquals(Arrays.asList(c, c, c, c), pages.get(0).getTail().getRemaining());
+	}
+
+	@Test
+	public void testSplitAll_04() {
+		Random rnd = new Random(4711);
+		for (int r=0; r<100; r++) {
+			Map<String, DummySplitPoint> suppMap = new HashMap<>();
+			for (int i=0; i<4; i++) {
+				suppMap.put("s"+i, new DummySplitPoint.Builder().size(rnd.nextInt(3)).build());
+			}
+			List<DummySplitPoint> units = new ArrayList<>();
+			for (int i=0; i<40; i++) {
+				DummySplitPoint.Builder b = new DummySplitPoint.Builder()
+						.breakable(rnd.nextInt(3)==0)
+						.skippable(rnd.nextInt(4)==0)
+						.collapsable(rnd.nextInt(4)==0)
+						.size(1+rnd.nextInt(2));
+				if (rnd.nextInt(3)==0) {
+					b.supplementID("s"+rnd.nextInt(5));
+				}
+				units.add(b.build());
+			}
+			List<Float> breakPoints = new ArrayList<>();
+			for (int i=0; i<40; i++) {
+				breakPoints.add(4f+rnd.nextInt(8));
+			}
+			SplitPointHandler<DummySplitPoint, SplitPointDataList<DummySplitPoint>> bph = new SplitPointHandler<>();
+			SplitPointDataList<DummySplitPoint> data = new SplitPointDataList<>(units, id->suppMap.get(id));
+			Iterator<SplitPoint<DummySplitPoint, SplitPointDataList<DummySplitPoint>>> actual = bph.splitAll(breakPoints.iterator(), data, StandardSplitOption.ALLOW_FORCE).iterator();
+			for (Float breakPoint : breakPoints) {
+				if (data.isEmpty()) {
+					break;
+				}
+				SplitPoint<DummySplitPoint, SplitPointDataList<DummySplitPoint>> expected = bph.split(breakPoint, data, StandardSplitOption.ALLOW_FORCE);
+				SplitPoint<DummySplitPoint, SplitPointDataList<DummySplitPoint>> sp = actual.next();
+				assertEquals(expected.getHead(), sp.getHead());
+				assertEquals(expected.getSupplements(), sp.getSupplements());
+				assertEquals(expected.getDiscarded(), sp.getDiscarded());
+				assertEquals(expected.isHardBreak(), sp.isHardBreak());
+				assertEquals(expected.getTail().getRemaining(), sp.getTail().getRemaining());
+				data = expected.getTail();
+			}
+			assertTrue(!actual.hasNext());
+		}
+	}
+
+	@Test
+	public void testFindLimit() {
+		// compares with a separate fit test followed by a search for the last unit that fits
+		Random rnd = new Random(4711);
+		for (int r=0; r<5000; r++) {
+			Map<String, DummySplitPoint> suppMap = new HashMap<>();
+			for (int i=0; i<4; i++) {
+				suppMap.put("s"+i, new DummySplitPoint.Builder().size(rnd.nextInt(6)).build());
+			}
+			List<DummySplitPoint> units = new ArrayList<>();
+			int len = rnd.nextInt(12);
+			for (int i=0; i<len; i++) {
+				int size = 1+rnd.nextInt(2);
+				DummySplitPoint.Builder b = new DummySplitPoint.Builder()
+						.breakable(rnd.nextInt(3)==0)
+						.skippable(rnd.nextInt(4)==0)
+						.collapsable(rnd.nextInt(3)==0)
+						.size(size)
+						.minSize(size-1+rnd.nextInt(4));
+				if (rnd.nextInt(3)==0) {
+					String id = "s"+rnd.nextInt(5);
+					b.supplementID(id);
+					if (rnd.nextInt(3)==0) {
+						// a duplicate id within a unit
+						b.supplementID(id);
+					}
+				}
+				units.add(b.build());
+			}
+			SplitPointDataList<DummySplitPoint> data = new SplitPointDataList<>(units, id->suppMap.get(id));
+			float breakPoint = rnd.nextInt(14);
+			boolean useLastUnitSize = rnd.nextBoolean();
+			int expected;
+			if (data.isEmpty()) {
+				expected = SplitPointHandler.LIMIT_EMPTY;
+			} else if (breakPoint<=0) {
+				expected = SplitPointHandler.LIMIT_NONE;
+			} else if (SplitPointHandler.fits(data, breakPoint, useLastUnitSize)) {
+				expected = SplitPointHandler.LIMIT_ALL;
+			} else {
+				int startPos = SplitPointHandler.findCollapse(data, new SizeStep<>(breakPoint, data.getSupplements(), useLastUnitSize));
+				if (startPos<0) {
+					expected = SplitPointHandler.LIMIT_NONE;
+				} else {
+					int strPos = SplitPointHandler.forwardSkippable(data, startPos);
+					expected = data.hasElementAt(strPos+1)?strPos:SplitPointHandler.LIMIT_ALL;
+				}
+			}
+			SplitPointHandler<DummySplitPoint, SplitPointDataList<DummySplitPoint>> bph = new SplitPointHandler<>();
+			assertEquals(expected, bph.findLimit(breakPoint, data, useLastUnitSize));
+		}
+	}
+
+	@Test
+	public void testFindLimitDuplicateSupplement() {
+		// the supplement of the collapsible unit is referenced twice, but only counted once
+		DummySplitPoint d = new DummySplitPoint.Builder().size(5).build();
+		DummySplitPoint b = new DummySplitPoint.Builder().breakable(true).size(1).build();
+		List<DummySplitPoint> units = Arrays.asList(
+				new DummySplitPoint.Builder().breakable(true).collapsable(true).size(1).supplementID("d").supplementID("d").build(),
+				b, b, b,
+				new DummySplitPoint.Builder().breakable(true).size(1).minSize(5).build());
+		SplitPointDataList<DummySplitPoint> data = new SplitPointDataList<>(units, id->"d".equals(id)?d:null);
+		SplitPointHandler<DummySplitPoint, SplitPointDataList<DummySplitPoint>> bph = new SplitPointHandler<>();
+		SplitPoint<DummySplitPoint, SplitPointDataList<DummySplitPoint>> sp = bph.split(10, data,
+				StandardSplitOption.RETAIN_TRAILING, StandardSplitOption.NO_LAST_UNIT_SIZE);
+		assertEquals(5, sp.getHead().size());
+		assertEquals(1, sp.getSupplements().size());
+		assertTrue(sp.getTail().isEmpty());
+	}
+
+	@Test
+	public void testRecording() {
+		Random rnd = new Random(4711);
+		for (int r=0; r<200; r++) {
+			Map<String, DummySplitPoint> suppMap = new HashMap<>();
+			for (int i=0; i<4; i++) {
+				suppMap.put("s"+i, new DummySplitPoint.Builder().size(rnd.nextInt(3)).build());
+			}
+			List<DummySplitPoint> units = new ArrayList<>();
+			for (int i=0; i<30; i++) {
+				DummySplitPoint.Builder b = new DummySplitPoint.Builder()
+						.breakable(rnd.nextInt(3)==0)
+						.skippable(rnd.nextInt(3)==0)
+						.collapsable(rnd.nextInt(3)==0)
+						.size(rnd.nextInt(3));
+				if (rnd.nextInt(3)==0) {
+					b.supplementID("s"+rnd.nextInt(5));
+				}
+				units.add(b.build());
+			}
+			SplitPointHandler<DummySplitPoint, SplitPointDataList<DummySplitPoint>> bph = new SplitPointHandler<>();
+			SplitPointDataList<DummySplitPoint> data = new SplitPointDataList<>(units, id->suppMap.get(id));
+			float breakPoint = 2+rnd.nextInt(20);
+			StandardSplitOption[] opts = rnd.nextBoolean()?
+					new StandardSplitOption[]{StandardSplitOption.ALLOW_FORCE}:
+					new StandardSplitOption[]{StandardSplitOption.ALLOW_FORCE, StandardSplitOption.RETAIN_TRAILING};
+			// a specification has no recording, unless the state is kept
+			assertNull(bph.find(breakPoint, data, opts).getRecording());
+			SplitPointSpecification spec = bph.find(breakPoint, data, SplitPointHandler.defaultCost(), true, opts);
+			SplitPoint<DummySplitPoint, SplitPointDataList<DummySplitPoint>> expected = bph.split(spec.withoutRecording(), data);
+			SplitPoint<DummySplitPoint, SplitPointDataList<DummySplitPoint>> actual = bph.split(spec, data);
+			assertEquals(expected.getHead(), actual.getHead());
+			assertEquals(expected.getSupplements(), actual.getSupplements());
+			assertEquals(expected.getDiscarded(), actual.getDiscarded());
+			assertEquals(expected.isHardBreak(), actual.isHardBreak());
+			assertEquals(expected.getTail().getRemaining(), actual.getTail().getRemaining());
+		}
+	}
+
+	@Test
+	public void testIntSupplements() {
+		Random rnd = new Random(4711);
+		for (int r=0; r<100; r++) {
+			DummySplitPoint[] supps = new DummySplitPoint[5];
+			for (int i=0; i<supps.length; i++) {
+				supps[i] = new DummySplitPoint.Builder().size(rnd.nextInt(3)).build();
+			}
+			Supplements<DummySplitPoint> stringSupps = new Supplements<DummySplitPoint>() {
+				@Override
+				public DummySplitPoint get(String id) {
+					return supps[Integer.parseInt(id.substring(1))];
+				}
+				@Override
+				public double getOverhead() {
+					return 1;
+				}
+			};
+			IntSupplements<DummySplitPoint> intSupps = new IntSupplements<DummySplitPoint>() {
+				@Override
+				public DummySplitPoint get(String id) {
+					return stringSupps.get(id);
+				}
+				@Override
+				public DummySplitPoint get(int id) {
+					return supps[id];
+				}
+				@Override
+				public int getIntID(String id) {
+					return Integer.parseInt(id.substring(1));
+				}
+				@Override
+				public double getOverhead() {
+					return 1;
+				}
+			};
+			List<DummySplitPoint> units = new ArrayList<>();
+			for (int i=0; i<40; i++) {
+				DummySplitPoint.Builder b = new DummySplitPoint.Builder()
+						.breakable(rnd.nextInt(3)==0)
+						.collapsable(rnd.nextInt(4)==0)
+						.size(1+rnd.nextInt(2));
+				int[] ids = new int[rnd.nextInt(3)];
+				for (int j=0; j<ids.length; j++) {
+					ids[j] = rnd.nextInt(supps.length);
+					b.supplementID("s"+ids[j]);
+				}
+				// mix units with and without integer ids
+				units.add(rnd.nextBoolean()?new IntDummySplitPoint(b, ids):b.build());
+			}
+			SplitPointHandler<DummySplitPoint, SplitPointDataList<DummySplitPoint>> bph = new SplitPointHandler<>();
+			SplitPointDataList<DummySplitPoint> data1 = new SplitPointDataList<>(units, stringSupps);
+			SplitPointDataList<DummySplitPoint> data2 = new SplitPointDataList<>(units, intSupps);
+			while (!data1.isEmpty()) {
+				float breakPoint = 4+rnd.nextInt(10);
+				SplitPoint<DummySplitPoint, SplitPointDataList<DummySplitPoint>> expected = bph.split(breakPoint, data1, StandardSplitOption.ALLOW_FORCE);
+				SplitPoint<DummySplitPoint, SplitPointDataList<DummySplitPoint>> actual = bph.split(breakPoint, data2, StandardSplitOption.ALLOW_FORCE);
+				assertEquals(expected.getHead(), actual.getHead());
+				assertEquals(expected.getSupplements(), actual.getSupplements());
+				assertEquals(expected.getDiscarded(), actual.getDiscarded());
+				data1 = expected.getTail();
+				data2 = actual.getTail();
+			}
+		}
+	}
+
+	private static class IntDummySplitPoint extends DummySplitPoint implements IntSupplementUnit {
+		private final int[] ids;
+		IntDummySplitPoint(DummySplitPoint.Builder builder, int[] ids) {
+			super(builder);
+			this.ids = ids;
+		}
+		@Override
+		public int[] getSupplementaryIntIDs() {
+			return ids;
+		}
+	}
+
+	@Test
+	public void testSplitArrays() {
+		Random rnd = new Random(4711);
+		for (int r=0; r<200; r++) {
+			int len = rnd.nextInt(40);
+			float[] sizes = new float[len];
+			float[] lastSizes = new float[len];
+			BitSet breakable = new BitSet();
+			BitSet skippable = new BitSet();
+			List<DummySplitPoint> units = new ArrayList<>();
+			for (int i=0; i<len; i++) {
+				sizes[i] = 1+rnd.nextInt(3);
+				lastSizes[i] = sizes[i]-rnd.nextInt(2);
+				breakable.set(i, rnd.nextInt(3)==0);
+				skippable.set(i, rnd.nextInt(4)==0);
+				units.add(new DummySplitPoint.Builder().breakable(breakable.get(i)).skippable(skippable.get(i)).size(sizes[i]).minSize(lastSizes[i]).build());
+			}
+			SplitOption[] options = rnd.nextBoolean()
+					?new SplitOption[]{StandardSplitOption.ALLOW_FORCE}
+					:new SplitOption[]{StandardSplitOption.ALLOW_FORCE, StandardSplitOption.RETAIN_TRAILING};
+			SplitPointDataList<DummySplitPoint> data = new SplitPointDataList<>(units);
+			int fromIndex = 0;
+			for (int page=0; page<len+1; page++) {
+				float breakPoint = rnd.nextInt(10);
+				SplitPoint<DummySplitPoint, SplitPointDataList<DummySplitPoint>> expected = SplitPointHandler.split(breakPoint, data.getRemaining(), options);
+				SplitPointRange actual = SplitPointHandler.split(breakPoint, sizes, lastSizes, breakable, skippable, fromIndex, options);
+				assertEquals(fromIndex, actual.getStart());
+				assertEquals(expected.getHead().size(), actual.getHeadSize());
+				assertEquals(expected.getDiscarded().size(), actual.getTailStart()-actual.getHeadEnd());
+				assertEquals(expected.isHardBreak(), actual.isHardBreak());
+				assertEquals(expected.getTail().getRemaining(), units.subList(actual.getTailStart(), len));
+				data = expected.getTail();
+				fromIndex = actual.getTailStart();
+			}
+		}
+	}
+
+	@Test
+	public void testCollapseGroups() {
+		Random rnd = new Random(4711);
+		for (int r=0; r<200; r++) {
+			Map<String, DummySplitPoint> suppMap = new HashMap<>();
+			for (int i=0; i<4; i++) {
+				suppMap.put("s"+i, new DummySplitPoint.Builder().size(rnd.nextInt(3)).build());
+			}
+			List<DummySplitPoint> units = new ArrayList<>();
+			for (int i=0; i<40; i++) {
+				int size = 1+rnd.nextInt(3);
+				DummySplitPoint.Builder b = new DummySplitPoint.Builder()
+						.breakable(rnd.nextInt(3)==0)
+						.skippable(rnd.nextInt(3)==0)
+						.collapsable(rnd.nextInt(2)==0)
+						.size(size)
+						.minSize(size-1+rnd.nextInt(2));
+				if (rnd.nextInt(4)==0) {
+					b.supplementID("s"+rnd.nextInt(5));
+				}
+				units.add(new KindDummySplitPoint(b, rnd.nextInt(2)));
+			}
+			SplitPointHandler<DummySplitPoint, SplitPointDataList<DummySplitPoint>> bph = new SplitPointHandler<>();
+			Supplements<DummySplitPoint> supps = id->suppMap.get(id);
+			// start at different offsets, including the middle of a group
+			int start = rnd.nextInt(5);
+			SplitPointDataList<DummySplitPoint> data1 = new SplitPointDataList<>(units, supps).tail(start);
+			SplitPointDataList<DummySplitPoint> data2 = SplitPointDataList.withCollapseGroups(units, supps).tail(start);
+			while (!data1.isEmpty()) {
+				float breakPoint = 2+rnd.nextInt(10);
+				SplitPoint<DummySplitPoint, SplitPointDataList<DummySplitPoint>> expected = bph.split(breakPoint, data1, StandardSplitOption.ALLOW_FORCE);
+				SplitPoint<DummySplitPoint, SplitPointDataList<DummySplitPoint>> actual = bph.split(breakPoint, data2, StandardSplitOption.ALLOW_FORCE);
+				assertEquals(expected.getHead(), actual.getHead());
+				assertEquals(expected.getSupplements(), actual.getSupplements());
+				assertEquals(expected.getDiscarded(), actual.getDiscarded());
+				assertEquals(expected.isHardBreak(), actual.isHardBreak());
+				assertEquals(expected.getTail().getRemaining(), actual.getTail().getRemaining());
+				data1 = expected.getTail();
+				data2 = actual.getTail();
+			}
+		}
+	}
+
+	private static class KindDummySplitPoint extends DummySplitPoint {
+		private final int kind;
+		KindDummySplitPoint(DummySplitPoint.Builder builder, int kind) {
+			super(builder);
+			this.kind = kind;
+		}
+		@Override
+		public boolean collapsesWith(Object obj) {
+			return super.collapsesWith(obj) && kind==((KindDummySplitPoint)obj).kind;
+		}
+	}
+
+	@Test
+	public void testCache_01() {
+		SplitPointHandler<DummySplitPoint, SplitPointDataList<DummySplitPoint>> bph = new SplitPointHandler.Builder<DummySplitPoint, SplitPointDataList<DummySplitPoint>>()
+				.cacheSize(2)
+				.build();
+		List<DummySplitPoint> units = Arrays.asList(c, e, c, c, e, c);
+		SplitPointDataList<DummySplitPoint> data = new SplitPointDataList<>(units);
+		SplitPointSpecification spec = bph.find(3, data);
+		assertEquals(0, bph.getCacheHits());
+		assertEquals(1, bph.getCacheMisses());
+		// a different instance of the same window
+		assertEquals(spec.getIndex(), bph.find(3, new SplitPointDataList<>(units)).getIndex());
+		assertEquals(1, bph.getCacheHits());
+		// a different break point, offset or option
+		bph.find(4, data);
+		bph.find(3, data.tail(1));
+		bph.find(3, data, StandardSplitOption.ALLOW_FORCE);
+		assertEquals(1, bph.getCacheHits());
+		assertEquals(4, bph.getCacheMisses());
+		// the first result has been removed from the cache
+		bph.find(3, data);
+		assertEquals(1, bph.getCacheHits());
+		assertEquals(5, bph.getCacheMisses());
+	}
+
+	@Test
+	public void testCache_02() {
+		SplitPointHandler<DummySplitPoint, SplitPointDataList<DummySplitPoint>> bph = new SplitPointHandler<>();
+		SplitPointDataList<DummySplitPoint> data = new SplitPointDataList<>(c, e, c, c, e, c);
+		bph.find(3, data);
+		bph.find(3, data);
+		assertEquals(0, bph.getCacheHits());
+		assertEquals(0, bph.getCacheMisses());
+	}
+
+	@Test
+	public void testListener_01() {
+		List<SplitterMetrics> metrics = new ArrayList<>();
+		SplitPointHandler<DummySplitPoint, SplitPointDataList<DummySplitPoint>> bph = new SplitPointHandler.Builder<DummySplitPoint, SplitPointDataList<DummySplitPoint>>()
+				.listener(metrics::add)
+				.build();
+		SplitPointDataList<DummySplitPoint> data = new SplitPointDataList<>(c, e, c, c, e, c);
+		SplitPointSpecification spec = bph.find(3, data, (units, index, limit)->(units.get(index).isBreakable()?1:2)*limit-index);
+		assertEquals(2, spec.getIndex());
+		bph.find(10, data);
+		assertEquals(2, metrics.size());
+		SplitterMetrics m = metrics.get(0);
+		assertEquals(SplitPointSpecification.Type.INDEX, m.getType());
+		assertEquals(0, m.getSizeUnits());
+		assertEquals(4, m.getCollapseUnits());
+		assertEquals(3, m.getCostCalls());
+		assertEquals(0, m.getSupplementLookups());
+		assertEquals(false, m.isCached());
+		assertTrue(m.getNanos()>=0);
+		assertEquals(3, m.getBreakPoint(), 0);
+		assertEquals(0, m.getOffset());
+		assertEquals(6, m.getSize());
+		assertTrue(m.getOptions().isEmpty());
+		assertTrue(m.getData().startsWith("SplitPointDataList@"));
+		m = metrics.get(1);
+		assertEquals(SplitPointSpecification.Type.ALL, m.getType());
+		assertEquals(0, m.getSizeUnits());
+		assertEquals(6, m.getCollapseUnits());
+		assertEquals(0, m.getCostCalls());
+		bph.find(3, data.tail(2), StandardSplitOption.ALLOW_FORCE, StandardSplitOption.NO_LAST_UNIT_SIZE);
+		m = metrics.get(2);
+		assertEquals(2, m.getOffset());
+		assertEquals(4, m.getSize());
+		assertEquals(EnumSet.of(StandardSplitOption.ALLOW_FORCE, StandardSplitOption.NO_LAST_UNIT_SIZE), m.getOptions());
+		// the tail is identified by the same units as the data it was split from
+		assertEquals(metrics.get(0).getData(), m.getData());
+	}
+
+	@Test
+	public void testListener_02() {
+		final DummySplitPoint s1 = new DummySplitPoint.Builder().breakable(true).skippable(false).size(1).build();
+		Supplements<DummySplitPoint> supps = id->"s1".equals(id)?s1:null;
+		DummySplitPoint c1 = new DummySplitPoint.Builder().breakable(true).skippable(false).size(1).supplementID("s1").build();
+		List<SplitterMetrics> metrics = new ArrayList<>();
+		SplitPointHandler<DummySplitPoint, SplitPointDataList<DummySplitPoint>> bph = new SplitPointHandler.Builder<DummySplitPoint, SplitPointDataList<DummySplitPoint>>()
+				.listener(metrics::add)
+				.cacheSize(1)
+				.build();
+		SplitPointDataList<DummySplitPoint> data = new SplitPointDataList<>(Arrays.asList(c1, c1, c, c), supps);
+		bph.find(3, data);
+		bph.find(3, data);
+		assertEquals(2, metrics.size());
+		assertEquals(1, metrics.get(0).getSupplementLookups());
+		assertEquals(false, metrics.get(0).isCached());
+		assertEquals(true, metrics.get(1).isCached());
+		assertEquals(0, metrics.get(1).getSizeUnits());
+		assertEquals(metrics.get(0).getType(), metrics.get(1).getType());
+	}
+
 	@Test
 	public void testBreakBefore() {
 		SplitPoint<DummySplitPoint, SplitPointDataList<DummySplitPoint>> bp = SplitPointHandler.split(0, Arrays.asList(c, c, c, c, c, c, c, c, c, c));
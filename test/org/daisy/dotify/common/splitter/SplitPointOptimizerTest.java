@@ -0,0 +1,104 @@
+package org.daisy.dotify.common.splitter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class SplitPointOptimizerTest {
+	DummySplitPoint c = new DummySplitPoint.Builder().breakable(false).skippable(false).size(1).build();
+	DummySplitPoint b = new DummySplitPoint.Builder().breakable(true).skippable(false).size(1).build();
+
+	@Test
+	public void testEmpty() {
+		SplitPointOptimizer<DummySplitPoint, SplitPointDataList<DummySplitPoint>> opt = new SplitPointOptimizer<>();
+		assertEquals(Collections.emptyList(), opt.find(new SplitPointDataList<DummySplitPoint>(), Arrays.asList(4f)));
+	}
+
+	@Test
+	public void testSinglePage() {
+		SplitPointOptimizer<DummySplitPoint, SplitPointDataList<DummySplitPoint>> opt = new SplitPointOptimizer<>();
+		List<SplitPointSpecification> specs = opt.find(new SplitPointDataList<>(b, c, b), Arrays.asList(4f));
+		assertEquals(1, specs.size());
+		assertEquals(SplitPointSpecification.Type.ALL, specs.get(0).getType());
+	}
+
+	@Test
+	public void testBalance_01() {
+		// Greedy: b b b b | b b | c c b, the second page is two units short
+		// Optimal: b b b | b b b | c c b, each page is one unit short
+		List<DummySplitPoint> units = Arrays.asList(b, b, b, b, b, b, c, c, b);
+		SplitPointOptimizer<DummySplitPoint, SplitPointDataList<DummySplitPoint>> opt = new SplitPointOptimizer<>();
+		List<List<DummySplitPoint>> pages = apply(opt.find(new SplitPointDataList<>(units), Arrays.asList(4f)), new SplitPointDataList<>(units));
+		assertEquals(Arrays.asList(
+				Arrays.asList(b, b, b),
+				Arrays.asList(b, b, b),
+				Arrays.asList(c, c, b)
+		), pages);
+	}
+
+	@Test
+	public void testBalance_02() {
+		// With a lookahead of one, the result is the same as the greedy result
+		List<DummySplitPoint> units = Arrays.asList(b, b, b, b, b, b, c, c, b);
+		SplitPointOptimizer<DummySplitPoint, SplitPointDataList<DummySplitPoint>> opt = new SplitPointOptimizer.Builder<DummySplitPoint, SplitPointDataList<DummySplitPoint>>()
+				.lookahead(1)
+				.build();
+		List<List<DummySplitPoint>> pages = apply(opt.find(new SplitPointDataList<>(units), Arrays.asList(4f)), new SplitPointDataList<>(units));
+		assertEquals(Arrays.asList(
+				Arrays.asList(b, b, b, b),
+				Arrays.asList(b, b),
+				Arrays.asList(c, c, b)
+		), pages);
+	}
+
+	@Test
+	public void testPageHeights() {
+		List<DummySplitPoint> units = Arrays.asList(b, b, b, b, b, b, b);
+		SplitPointOptimizer<DummySplitPoint, SplitPointDataList<DummySplitPoint>> opt = new SplitPointOptimizer<>();
+		List<List<DummySplitPoint>> pages = apply(opt.find(new SplitPointDataList<>(units), Arrays.asList(2f, 3f)), new SplitPointDataList<>(units));
+		assertEquals(Arrays.asList(
+				Arrays.asList(b, b),
+				Arrays.asList(b, b, b),
+				Arrays.asList(b, b)
+		), pages);
+	}
+
+	@Test
+	public void testCost() {
+		// A cost that prefers short pages
+		List<DummySplitPoint> units = Arrays.asList(b, b, b, b);
+		SplitPointOptimizer<DummySplitPoint, SplitPointDataList<DummySplitPoint>> opt = new SplitPointOptimizer<>();
+		List<SplitPointSpecification> specs = opt.find(new SplitPointDataList<>(units), Arrays.asList(3f), (data, index, limit)->index, StandardSplitOption.ALLOW_FORCE);
+		List<List<DummySplitPoint>> pages = apply(specs, new SplitPointDataList<>(units));
+		assertEquals(Arrays.asList(
+				Arrays.asList(b),
+				Arrays.asList(b, b, b)
+		), pages);
+	}
+
+	@Test (expected=IllegalStateException.class)
+	public void testNoFit() {
+		DummySplitPoint x = new DummySplitPoint.Builder().breakable(true).skippable(false).size(5).build();
+		new SplitPointOptimizer<DummySplitPoint, SplitPointDataList<DummySplitPoint>>().find(new SplitPointDataList<>(x, x), Arrays.asList(4f));
+	}
+
+	private static List<List<DummySplitPoint>> apply(List<SplitPointSpecification> specs, SplitPointDataList<DummySplitPoint> data) {
+		SplitPointHandler<DummySplitPoint, SplitPointDataList<DummySplitPoint>> bph = new SplitPointHandler<>();
+		List<List<DummySplitPoint>> ret = new ArrayList<>();
+		for (SplitPointSpecification spec : specs) {
+			SplitPoint<DummySplitPoint, SplitPointDataList<DummySplitPoint>> sp = bph.split(spec, data);
+			ret.add(sp.getHead());
+			data = sp.getTail();
+		}
+		assertTrue(data.isEmpty());
+		return ret;
+	}
+
+}
@@ -0,0 +1,65 @@
+package org.daisy.dotify.common.splitter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.daisy.dotify.common.splitter.SplitPointSpecification.Type;
+import org.daisy.dotify.common.splitter.SplitterMetricsAggregator.Histogram;
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class SplitterMetricsAggregatorTest {
+
+	private static SplitterMetrics metrics(Type type, long nanos, int units) {
+		SplitterMetrics ret = new SplitterMetrics();
+		ret.addSizeUnits(units);
+		ret.done(type, nanos);
+		return ret;
+	}
+
+	@Test
+	public void testBuckets() {
+		assertEquals(0, Histogram.bucket(0));
+		assertEquals(1, Histogram.bucket(1));
+		assertEquals(2, Histogram.bucket(2));
+		assertEquals(2, Histogram.bucket(3));
+		assertEquals(3, Histogram.bucket(4));
+		assertEquals(63, Histogram.bucket(Long.MAX_VALUE));
+		assertEquals(3, Histogram.upperBound(2));
+		assertEquals(Long.MAX_VALUE, Histogram.upperBound(63));
+	}
+
+	@Test
+	public void testAggregate() {
+		SplitterMetricsAggregator agg = new SplitterMetricsAggregator();
+		assertNull(agg.getSlowest());
+		assertEquals(0, agg.getSizeUnits().getPercentile(50));
+		SplitterMetrics slowest = metrics(Type.INDEX, 1000, 40);
+		agg.splitPointFound(metrics(Type.ALL, 10, 1));
+		agg.splitPointFound(metrics(Type.INDEX, 20, 2));
+		agg.splitPointFound(slowest);
+		agg.splitPointFound(metrics(Type.INDEX, 30, 3));
+		assertEquals(4, agg.getCount());
+		assertEquals(1, agg.getTypeCount(Type.ALL));
+		assertEquals(3, agg.getTypeCount(Type.INDEX));
+		assertEquals(0, agg.getTypeCount(Type.NONE));
+		assertSame(slowest, agg.getSlowest());
+		Histogram units = agg.getSizeUnits();
+		assertEquals(4, units.getCount());
+		assertEquals(46, units.getSum());
+		assertEquals(40, units.getMax());
+		assertEquals(11.5, units.getMean(), 0);
+		assertEquals(1, units.getBucketCount(1));
+		assertEquals(2, units.getBucketCount(2));
+		assertEquals(1, units.getBucketCount(6));
+		assertEquals(3, units.getPercentile(50));
+		assertEquals(40, units.getPercentile(100));
+		agg.reset();
+		assertEquals(0, agg.getCount());
+		assertEquals(0, agg.getSizeUnits().getCount());
+		// a snapshot is not affected
+		assertEquals(4, units.getCount());
+	}
+
+}
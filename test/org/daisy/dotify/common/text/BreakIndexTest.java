@@ -0,0 +1,74 @@
+package org.daisy.dotify.common.text;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class BreakIndexTest {
+
+	@Test
+	public void testFindPosition() {
+		BreakIndex index = new BreakIndex("ab\u00adcd\u200bef".toCharArray());
+		assertEquals(0, index.findPosition(0, 1));
+		assertEquals(1, index.findPosition(0, 2));
+		assertEquals(3, index.findPosition(0, 3));
+		assertEquals(6, index.findPosition(0, 5));
+		assertEquals(7, index.findPosition(0, 6));
+		assertEquals(7, index.findPosition(0, 10));
+		assertEquals(3, index.findPosition(2, 1));
+		assertEquals(6, index.findPosition(5, 1));
+	}
+
+	@Test
+	public void testCountVisible() {
+		BreakIndex index = new BreakIndex("ab\u00adcd\u200bef".toCharArray());
+		assertEquals(6, index.countVisible(0, 8));
+		assertEquals(2, index.countVisible(2, 5));
+		assertEquals(0, index.countVisible(5, 6));
+	}
+
+	@Test
+	public void testFindBreakBefore() {
+		BreakIndex index = new BreakIndex("a b-c\u00add\u200be f".toCharArray());
+		assertEquals(9, index.findBreakBefore(10, 0, false));
+		assertEquals(7, index.findBreakBefore(8, 0, false));
+		assertEquals(5, index.findBreakBefore(5, 0, false));
+		assertEquals(3, index.findBreakBefore(4, 0, false));
+		assertEquals(-1, index.findBreakBefore(4, 4, false));
+		assertEquals(-1, index.findBreakBefore(0, 0, false));
+		assertEquals(9, index.findBreakBefore(10, 0, true));
+		assertEquals(1, index.findBreakBefore(8, 0, true));
+		assertEquals(-1, index.findBreakBefore(8, 2, true));
+	}
+
+	@Test
+	public void testSurrogatePairs() {
+		BreakIndex index = new BreakIndex("a\ud835\udc00\u00adb \ud835\udc01".toCharArray());
+		assertTrue(!index.isBmp());
+		assertTrue(new BreakIndex("ab\u00adcd".toCharArray()).isBmp());
+		assertEquals(5, index.countVisible(0, 8));
+		assertEquals(6, index.countCodePoints(0, 8));
+		assertEquals(2, index.countCodePoints(1, 4));
+		assertEquals(2, index.findPosition(0, 2));
+		assertEquals(4, index.findPosition(0, 3));
+		assertEquals(7, index.findPosition(5, 2));
+	}
+
+	@Test
+	public void testLongWord() {
+		StringBuilder sb = new StringBuilder();
+		for (int i=0; i<100000; i++) {
+			sb.append((char)('a'+i%26));
+		}
+		BreakPointHandler bph = new BreakPointHandler(sb.toString());
+		int rows = 0;
+		while (bph.hasNext()) {
+			assertEquals(40, bph.nextRow(40, true).getHead().length());
+			rows++;
+		}
+		assertEquals(2500, rows);
+	}
+
+}
@@ -2,6 +2,8 @@ package org.daisy.dotify.common.text;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
+import java.util.Random;
+
 import org.daisy.dotify.common.text.BreakPoint;
 import org.daisy.dotify.common.text.BreakPointHandler;
 import org.junit.Test;
@@ -238,7 +240,52 @@ public class BreakPointHandlerTest {
 		assertEquals("teen", bp.getTail());
 		assertTrue(!bp.isHardBreak());
 	}
-	
+
+	@Test
+	public void testNSH_07() {
+		BreakPointHandler bph = new BreakPointHandler.Builder("Det ska vara bra och til­låtet.").
+				addHyphenationInfo(23, 3, "ll­l").build();
+		assertEquals("Det ska", bph.nextRow(7, false).getHead());
+		assertEquals("vara bra", bph.nextRow(8, false).getHead());
+		BreakPoint bp = bph.nextRow(9, false);
+		assertEquals("och till-", bp.getHead());
+		assertEquals("låtet.", bp.getTail());
+		assertTrue(!bp.isHardBreak());
+	}
+
+	@Test
+	public void testNSH_08() {
+		BreakPointHandler bph = new BreakPointHandler.Builder("til­låta til­låta").
+				addHyphenationInfo(2, 3, "ll­l").
+				addHyphenationInfo(11, 3, "ll­l").build();
+		assertEquals("till-", bph.nextRow(5, false).getHead());
+		BreakPoint bp = bph.nextRow(10, false);
+		assertEquals("låta till-", bp.getHead());
+		assertEquals("låta", bp.getTail());
+		assertEquals("låta", bph.nextRow(10, false).getHead());
+		assertTrue(!bph.hasNext());
+	}
+
+	@Test
+	public void testNSH_09() {
+		BreakPointHandler bph = new BreakPointHandler.Builder("Zuc\u00adker und Zuc\u00adker").
+				addHyphenationInfo(2, 3, "k\u00adk").
+				addHyphenationInfo(14, 3, "k\u00adk").build();
+		bph.mark();
+		assertEquals("Zuk-", bph.nextRow(5, false).getHead());
+		assertEquals("ker und Zucker", bph.getRemaining());
+		assertEquals(14, bph.countRemaining());
+		bph.reset();
+		assertEquals("Zucker", bph.nextRow(6, false).getHead());
+		bph.mark();
+		BreakPoint bp = bph.nextRow(9, false);
+		assertEquals("und Zuk-", bp.getHead());
+		assertEquals("ker", bp.getTail());
+		bph.reset();
+		assertEquals("und", bph.nextRow(7, false).getHead());
+		assertEquals("Zucker", bph.getRemaining());
+	}
+
 	@Test
 	public void testIgnoreHyphen_01() {
 		// Tests ignoring hyphens with a space in the input
@@ -330,4 +377,136 @@ public class BreakPointHandlerTest {
 		assertEquals("", bp.getTail());
 	}
 
-}
\ No newline at end of file
+	@Test
+	public void testBreakAll_01() {
+		BreakPointHandler bph = new BreakPointHandler("citat blockci\u00adtat20  abc");
+		RowBreaks rows = bph.breakAll(new int[]{6, 8}, false);
+		assertEquals(4, rows.size());
+		assertEquals(0, rows.getStart(0));
+		assertEquals(5, rows.getEnd(0));
+		assertEquals("citat", rows.getHead(0));
+		assertEquals(6, rows.getStart(1));
+		assertEquals(13, rows.getEnd(1));
+		assertTrue(rows.isHyphenated(1));
+		assertEquals("blockci-", rows.getHead(1));
+		assertEquals(14, rows.getStart(2));
+		assertEquals(19, rows.getEnd(2));
+		assertEquals("tat20", rows.getHead(2));
+		assertEquals(21, rows.getStart(3));
+		assertEquals(24, rows.getEnd(3));
+		assertEquals("abc", rows.getHead(3));
+		assertTrue(!bph.hasNext());
+	}
+
+	@Test
+	public void testBreakAll_02() {
+		BreakPointHandler bph = new BreakPointHandler.Builder("Det ska vara bra och til\u00adlåtet.").
+				addHyphenationInfo(23, 3, "ll\u00adl").build();
+		RowBreaks rows = bph.breakAll(row->new int[]{7, 8, 9}[Math.min(row, 2)], false);
+		assertEquals(4, rows.size());
+		assertEquals("och till-", rows.getHead(2));
+		assertEquals(17, rows.getStart(2));
+		assertEquals(26, rows.getEnd(2));
+		assertEquals("låtet.", rows.getHead(3));
+		assertEquals(26, rows.getStart(3));
+		assertEquals(31, rows.getEnd(3));
+	}
+
+	@Test(expected=IllegalStateException.class)
+	public void testBreakAll_03() {
+		new BreakPointHandler("citat/blockcitat20").breakAll(new int[]{5}, false);
+	}
+
+	@Test
+	public void testBreakAll_04() {
+		Random rnd = new Random(4711);
+		String alpha = "abcdef  \u00ad\u200b-";
+		for (int t=0; t<1000; t++) {
+			StringBuilder sb = new StringBuilder();
+			int len = rnd.nextInt(60);
+			for (int i=0; i<len; i++) {
+				sb.append(alpha.charAt(rnd.nextInt(alpha.length())));
+			}
+			int[] widths = {1+rnd.nextInt(10), 1+rnd.nextInt(10)};
+			BreakPointHandler bph = new BreakPointHandler(sb.toString());
+			BreakPointHandler expected = bph.copy();
+			RowBreaks rows = bph.breakAll(widths, true);
+			for (int i=0; i<rows.size(); i++) {
+				BreakPoint bp = expected.nextRow(widths[Math.min(i, 1)], true);
+				assertEquals(bp.getHead(), rows.getHead(i));
+				assertEquals(bp.isHardBreak(), rows.isHardBreak(i));
+			}
+			assertTrue(!expected.hasNext());
+		}
+	}
+
+	@Test
+	public void testSupplementary_01() {
+		// mathematical bold capital letters are outside of the BMP
+		BreakPointHandler bph = new BreakPointHandler("\ud835\udc00\ud835\udc01\u00ad\ud835\udc02\ud835\udc03 \ud835\udc04");
+		assertEquals(6, bph.countRemaining());
+		BreakPoint bp = bph.nextRow(3, false);
+		assertEquals("\ud835\udc00\ud835\udc01-", bp.getHead());
+		assertEquals("\ud835\udc02\ud835\udc03 \ud835\udc04", bp.getTail());
+		assertTrue(!bp.isHardBreak());
+		bp = bph.nextRow(2, false);
+		assertEquals("\ud835\udc02\ud835\udc03", bp.getHead());
+		bp = bph.nextRow(2, false);
+		assertEquals("\ud835\udc04", bp.getHead());
+		assertTrue(!bph.hasNext());
+	}
+
+	@Test
+	public void testSupplementary_02() {
+		BreakPointHandler bph = new BreakPointHandler("\ud83d\ude00\ud83d\ude01\ud83d\ude02\ud83d\ude03");
+		BreakPoint bp = bph.nextRow(3, true);
+		assertEquals("\ud83d\ude00\ud83d\ude01\ud83d\ude02", bp.getHead());
+		assertEquals("\ud83d\ude03", bp.getTail());
+		assertTrue(bp.isHardBreak());
+	}
+
+	@Test
+	public void testSupplementary_03() {
+		// breaking text with supplementary characters gives the same rows as the same text in the BMP
+		Random rnd = new Random(4712);
+		String alpha = "abcdef  \u00ad\u200b-";
+		for (int t=0; t<1000; t++) {
+			StringBuilder sb = new StringBuilder();
+			int len = rnd.nextInt(60);
+			for (int i=0; i<len; i++) {
+				sb.append(alpha.charAt(rnd.nextInt(alpha.length())));
+			}
+			String bmp = sb.toString();
+			String supp = toSupplementary(bmp);
+			int width = 1+rnd.nextInt(10);
+			BreakPointHandler expected = new BreakPointHandler(bmp);
+			BreakPointHandler actual = new BreakPointHandler(supp);
+			assertEquals(expected.countRemaining(), actual.countRemaining());
+			int count = 0;
+			while (expected.hasNext()) {
+				count++;
+				BreakPoint e = expected.nextRow(width, true);
+				BreakPoint a = actual.nextRow(width, true);
+				assertEquals(toSupplementary(e.getHead()), a.getHead());
+				assertEquals(toSupplementary(e.getTail()), a.getTail());
+				assertEquals(e.isHardBreak(), a.isHardBreak());
+			}
+			assertTrue(!actual.hasNext());
+			assertEquals(count, new BreakPointHandler(supp).breakAll(new int[]{width}, true).size());
+		}
+	}
+
+	private static String toSupplementary(String str) {
+		StringBuilder sb = new StringBuilder();
+		for (char c : str.toCharArray()) {
+			if (c>='a' && c<='z') {
+				// mathematical bold small letters
+				sb.appendCodePoint(0x1d41a+c-'a');
+			} else {
+				sb.append(c);
+			}
+		}
+		return sb.toString();
+	}
+
+}
@@ -0,0 +1,135 @@
+package org.daisy.dotify.common.text;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class BreakPointOptimizerTest {
+
+	@Test
+	public void testBalanced() {
+		BreakPointHandler bph = new BreakPointHandler("aaa bb cc ddddd");
+		assertEquals(3, greedy(bph.copy(), 6, false).size());
+		List<BreakPoint> rows = new BreakPointOptimizer().find(bph, 6, false);
+		assertEquals(3, rows.size());
+		assertEquals("aaa", rows.get(0).getHead());
+		assertEquals("bb cc", rows.get(1).getHead());
+		assertEquals("ddddd", rows.get(2).getHead());
+		assertEquals("", rows.get(2).getTail());
+		// the handler is not modified
+		assertEquals("aaa bb cc ddddd", bph.getRemaining());
+	}
+
+	@Test
+	public void testSoftHyphen() {
+		BreakPointHandler bph = new BreakPointHandler("abc de­fgh ij");
+		List<BreakPoint> rows = new BreakPointOptimizer().find(bph, 7, false);
+		assertEquals(2, rows.size());
+		assertEquals("abc de-", rows.get(0).getHead());
+		assertEquals("fgh ij", rows.get(1).getHead());
+	}
+
+	@Test
+	public void testNonStandardHyphenation() {
+		BreakPointHandler bph = new BreakPointHandler.Builder("Det ska vara til­låtet.").
+				addHyphenationInfo(15, 3, "ll­l").build();
+		List<BreakPoint> rows = new BreakPointOptimizer().find(bph, 18, false);
+		assertEquals(2, rows.size());
+		assertEquals("Det ska vara till-", rows.get(0).getHead());
+		assertEquals("låtet.", rows.get(1).getHead());
+	}
+
+	@Test
+	public void testForce() {
+		BreakPointHandler bph = new BreakPointHandler("abcdefgh ij");
+		List<BreakPoint> rows = new BreakPointOptimizer().find(bph, 4, true);
+		assertEquals(3, rows.size());
+		assertEquals("abcd", rows.get(0).getHead());
+		assertTrue(rows.get(0).isHardBreak());
+	}
+
+	@Test
+	public void testForceShorter() {
+		// shorter rows are also forced, which balances the rows
+		List<BreakPoint> rows = new BreakPointOptimizer().find(new BreakPointHandler("abcdef gh"), 4, true);
+		assertEquals(3, rows.size());
+		assertEquals("abc", rows.get(0).getHead());
+		assertEquals("def", rows.get(1).getHead());
+		assertEquals("gh", rows.get(2).getHead());
+	}
+
+	@Test(expected=IllegalStateException.class)
+	public void testNoForce() {
+		new BreakPointOptimizer().find(new BreakPointHandler("abcdefgh ij"), 4, false);
+	}
+
+	@Test
+	public void testEmpty() {
+		assertTrue(new BreakPointOptimizer().find(new BreakPointHandler(""), 4, false).isEmpty());
+	}
+
+	@Test
+	public void testRandom() {
+		Random rnd = new Random(4711);
+		BreakPointOptimizer optimizer = new BreakPointOptimizer.Builder().beamWidth(4).build();
+		for (int t=0; t<200; t++) {
+			StringBuilder sb = new StringBuilder();
+			int words = 5+rnd.nextInt(30);
+			for (int w=0; w<words; w++) {
+				if (w>0) {
+					sb.append(rnd.nextInt(6)==0?"-":" ");
+				}
+				int len = 1+rnd.nextInt(7);
+				for (int c=0; c<len; c++) {
+					if (c>0 && rnd.nextInt(4)==0) {
+						sb.append('­');
+					}
+					sb.append((char)('a'+rnd.nextInt(26)));
+				}
+			}
+			int width = 8+rnd.nextInt(20);
+			BreakPointHandler bph = new BreakPointHandler(sb.toString());
+			List<BreakPoint> expected = greedy(bph.copy(), width, true);
+			List<BreakPoint> actual = optimizer.find(bph, width, true);
+			assertTrue(actual.size()<=expected.size());
+			assertTrue(cost(actual, width)<=cost(expected, width));
+			for (BreakPoint bp : actual) {
+				assertTrue(bp.getHead().length()<=width);
+			}
+			assertEquals(join(expected), join(actual));
+		}
+	}
+
+	private static List<BreakPoint> greedy(BreakPointHandler bph, int width, boolean force) {
+		List<BreakPoint> ret = new ArrayList<>();
+		while (bph.hasNext()) {
+			ret.add(bph.nextRow(width, force));
+		}
+		return ret;
+	}
+
+	private static double cost(List<BreakPoint> rows, int width) {
+		double ret = 0;
+		for (int i=0; i<rows.size()-1; i++) {
+			int slack = width-rows.get(i).getHead().length();
+			ret += slack*slack;
+		}
+		return ret;
+	}
+
+	private static String join(List<BreakPoint> rows) {
+		StringBuilder sb = new StringBuilder();
+		for (BreakPoint bp : rows) {
+			// compare the letters only, since spaces and hyphens depend on where the rows are broken
+			sb.append(bp.getHead().replaceAll("[ -]", ""));
+		}
+		return sb.toString();
+	}
+
+}
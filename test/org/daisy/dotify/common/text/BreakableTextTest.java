@@ -0,0 +1,77 @@
+package org.daisy.dotify.common.text;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class BreakableTextTest {
+
+	@Test
+	public void testHandlers() {
+		BreakableText text = new BreakableText.Builder("til\u00adlåta til\u00adlåta").
+				addHyphenationInfo(2, 3, "ll\u00adl").
+				addHyphenationInfo(11, 3, "ll\u00adl").build();
+		assertEquals(17, text.length());
+		assertEquals(15, text.countVisible());
+		BreakPointHandler h1 = text.newHandler();
+		assertEquals("till-", h1.nextRow(5, false).getHead());
+		// the text is not changed by the first handler
+		BreakPointHandler h2 = text.newHandler();
+		assertEquals("tillåta", h2.nextRow(7, false).getHead());
+		assertEquals("låta", h1.nextRow(4, false).getHead());
+		assertEquals("tillåta", h2.nextRow(7, false).getHead());
+		assertTrue(!h2.hasNext());
+	}
+
+	@Test
+	public void testConcurrent() throws Exception {
+		StringBuilder sb = new StringBuilder();
+		for (int i=0; i<200; i++) {
+			sb.append("Det ska vara til\u00adlåtet att bry\u00adta ");
+		}
+		BreakableText.Builder builder = new BreakableText.Builder(sb.toString());
+		for (int i=0; i<200; i++) {
+			builder.addHyphenationInfo(i*34+15, 3, "ll\u00adl");
+		}
+		BreakableText text = builder.build();
+		List<List<String>> expected = new ArrayList<>();
+		for (int width=10; width<30; width++) {
+			expected.add(rows(text, width));
+		}
+		// the hyphenation rules are used
+		assertTrue(expected.stream().flatMap(List::stream).anyMatch(row->row.endsWith("till-")));
+		ExecutorService pool = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<List<String>>> actual = new ArrayList<>();
+			for (int r=0; r<10; r++) {
+				for (int width=10; width<30; width++) {
+					int w = width;
+					actual.add(pool.submit(()->rows(text, w)));
+				}
+			}
+			for (int i=0; i<actual.size(); i++) {
+				assertEquals(expected.get(i%expected.size()), actual.get(i).get());
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	private static List<String> rows(BreakableText text, int width) {
+		BreakPointHandler bph = text.newHandler();
+		List<String> ret = new ArrayList<>();
+		while (bph.hasNext()) {
+			ret.add(bph.nextRow(width, true).getHead());
+		}
+		return ret;
+	}
+
+}
@@ -0,0 +1,64 @@
+package org.daisy.dotify.common.text;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class CodePointTableTest {
+
+	@Test
+	public void testDense() {
+		Map<Integer, String> map = new HashMap<>();
+		map.put((int)'a', "A");
+		map.put((int)'z', "");
+		CodePointTable table = CodePointTable.compile(map);
+		assertEquals("A", table.get('a'));
+		assertEquals("", table.get('z'));
+		assertNull(table.get('b'));
+		assertNull(table.get(0x2800));
+		assertNull(table.get(-1));
+	}
+
+	@Test
+	public void testSparse() {
+		Map<Integer, String> map = new HashMap<>();
+		map.put((int)'a', "A");
+		map.put(0x2801, "a");
+		map.put(0xffff, "b");
+		map.put(0x1d400, "c");
+		map.put(-2, "d");
+		CodePointTable table = CodePointTable.compile(map);
+		assertEquals("A", table.get('a'));
+		assertEquals("a", table.get(0x2801));
+		assertEquals("b", table.get(0xffff));
+		assertEquals("c", table.get(0x1d400));
+		assertNull(table.get(0x2800));
+		assertNull(table.get(0x1d401));
+		assertNull(table.get(-2));
+	}
+
+	@Test
+	public void testMany() {
+		Map<Integer, String> map = new HashMap<>();
+		for (int i=0; i<1000; i++) {
+			map.put(i*97, String.valueOf(i));
+		}
+		CodePointTable table = CodePointTable.compile(map);
+		for (int i=0; i<97*1000; i++) {
+			assertEquals(map.get(i), table.get(i));
+		}
+	}
+
+	@Test
+	public void testEmpty() {
+		CodePointTable table = CodePointTable.compile(new HashMap<>());
+		assertNull(table.get('a'));
+		assertNull(table.get(0x1d400));
+	}
+
+}
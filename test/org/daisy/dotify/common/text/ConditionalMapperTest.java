@@ -1,5 +1,7 @@
 package org.daisy.dotify.common.text;
 
+import java.io.IOException;
+
 import org.junit.Test;
 import static org.junit.Assert.*;
 
@@ -24,4 +26,20 @@ public class ConditionalMapperTest {
 		assertEquals("123(abc)", actual);
 	}
 
+	@Test
+	public void testMapper_04() {
+		// mathematical bold capital letters are outside of the BMP
+		String actual = ConditionalMapper.withTrigger(0x1d400).put(0x1d401, "b").put('c', "\ud835\udc02").build()
+				.replace("c\ud835\udc00\ud835\udc01c\ud835\udc01");
+		assertEquals("c\ud835\udc00b\ud835\udc02b", actual);
+	}
+
+	@Test
+	public void testMapper_05() throws IOException {
+		ConditionalMapper mapper = ConditionalMapper.withTrigger('(').map("123-","abc").putIgnorable(' ').build();
+		StringBuilder sb = new StringBuilder("x");
+		mapper.replace(new StringBuilder("123(1 2-3)"), sb);
+		assertEquals("x123(a bc)", sb.toString());
+	}
+
 }